@@ -0,0 +1,72 @@
+package org.altmir.bench;
+
+import org.altmir.AppConfig;
+import org.altmir.Bootstrap;
+import org.altmir.dao.User;
+import org.altmir.db.Storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Временная база для бенчмарков на выбранном движке хранилища (sqlite или memory): мигрированная схема, {@code users} пользователей
+ * с принятым соглашением (chat id 1..users) и один администратор {@link #ADMIN_ID}.
+ * Лимиты Telegram подняты, чтобы очередь отправки не становилась узким местом.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+    static final long ADMIN_ID = 1_000_000_000L;
+
+    private final File file;
+    private final Path memoryDir;
+    private final Bootstrap bootstrap;
+
+    BenchmarkDatabase(int users, int userCacheSize) throws IOException {
+        this(users, userCacheSize, "sqlite");
+    }
+
+    BenchmarkDatabase(int users, int userCacheSize, String engine) throws IOException {
+        this.file = File.createTempFile("kontrabot-bench", ".db");
+        this.memoryDir = Files.createTempDirectory("kontrabot-bench");
+        System.setProperty("database.url", "jdbc:sqlite:" + file.getAbsolutePath());
+        System.setProperty("storage.engine", engine);
+        System.setProperty("storage.memory.dir", memoryDir.toString());
+        System.setProperty("cache.users.maxSize", String.valueOf(userCacheSize));
+        System.setProperty("telegram.rateLimit.global", "1000000000");
+        System.setProperty("telegram.rateLimit.perChat", "1000000000");
+        System.setProperty("telegram.rateLimit.perChatBurst", "1000000");
+        this.bootstrap = Bootstrap.start(AppConfig.load());
+
+        Storage db = bootstrap.getStorage();
+        for (long chatId = 1; chatId <= users; chatId++) {
+            db.saveUser(new User(chatId, "user" + chatId, 0, 0, LocalDateTime.now(), true, false));
+        }
+        bootstrap.getAdminService().addAdmin(ADMIN_ID, "bench_admin", ADMIN_ID);
+    }
+
+    Bootstrap getBootstrap() {
+        return bootstrap;
+    }
+
+    Storage getStorage() {
+        return bootstrap.getStorage();
+    }
+
+    @Override
+    public void close() throws SQLException, IOException {
+        bootstrap.getStorage().close();
+        bootstrap.getConnectionPool().close();
+        String path = file.getAbsolutePath();
+        file.delete();
+        new File(path + "-wal").delete();
+        new File(path + "-shm").delete();
+        try (Stream<Path> files = Files.list(memoryDir)) {
+            files.forEach(memoryFile -> memoryFile.toFile().delete());
+        }
+        Files.delete(memoryDir);
+    }
+}
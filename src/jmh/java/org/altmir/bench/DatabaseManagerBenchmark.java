@@ -0,0 +1,80 @@
+package org.altmir.bench;
+
+import org.altmir.db.Storage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции хранилища на временных файлах: {@code engine} — SQLite ({@link org.altmir.db.DatabaseManager})
+ * или {@link org.altmir.db.memory.MemoryStorage}. {@code cacheSize = 0} отключает кэш пользователей
+ * SQLite и меряет чистый путь через базу; на memory кэш не влияет.
+ * Многопоточный прогон (-t 8) показывает, во что упирается единственный писатель SQLite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseManagerBenchmark {
+    private static final int USERS = 10_000;
+
+    @Param({"sqlite", "memory"})
+    public String engine;
+
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private BenchmarkDatabase database;
+    private Storage db;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(USERS, cacheSize, engine);
+        db = database.getStorage();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    private static long randomChatId() {
+        return ThreadLocalRandom.current().nextLong(1, USERS + 1);
+    }
+
+    @Benchmark
+    public Object getUser() {
+        return db.getUser(randomChatId());
+    }
+
+    @Benchmark
+    public boolean isAdmin() {
+        return db.isAdmin(randomChatId());
+    }
+
+    @Benchmark
+    public Boolean addGame() {
+        return db.addGame(randomChatId()).join();
+    }
+
+    @Benchmark
+    public Long addPendingGame() {
+        long chatId = randomChatId();
+        return db.addPendingGame(chatId, "user" + chatId);
+    }
+}
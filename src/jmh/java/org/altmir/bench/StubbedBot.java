@@ -0,0 +1,27 @@
+package org.altmir.bench;
+
+import org.altmir.Bootstrap;
+import org.altmir.PaintballBot;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Бот, у которого вызовы Bot API не уходят в сеть, а сразу завершаются успешно.
+ */
+final class StubbedBot extends PaintballBot {
+    StubbedBot(Bootstrap bootstrap) {
+        super("bench_bot", "0:bench", bootstrap);
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> CompletableFuture<T> executeAsync(Method method) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method) {
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+package org.altmir.bench;
+
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Апдейты, какие присылает Telegram при нажатии кнопок главного меню.
+ * Смесь примерно повторяет реальный трафик: в основном статистика и бонусы, изредка /start.
+ */
+public final class SyntheticUpdates {
+    private static final String[] USER_TEXTS = {
+            "⭐ Моя статистика",
+            "⭐ Моя статистика",
+            "🎁 Бонусы",
+            "🎁 Бонусы",
+            "/start"
+    };
+
+    private static final AtomicInteger updateIds = new AtomicInteger();
+
+    private SyntheticUpdates() {
+    }
+
+    public static Update randomUserMessage(int users) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long chatId = random.nextLong(1, users + 1);
+        return message(chatId, USER_TEXTS[random.nextInt(USER_TEXTS.length)]);
+    }
+
+    public static Update message(long chatId, String text) {
+        Message message = botMessage(chatId, updateIds.get());
+        message.setFrom(user(chatId));
+        message.setText(text);
+
+        Update update = new Update();
+        update.setUpdateId(updateIds.incrementAndGet());
+        update.setMessage(message);
+        return update;
+    }
+
+    /**
+     * Нажатие inline-кнопки с {@code data} под сообщением {@code messageId} в чате {@code chatId}.
+     */
+    public static Update callback(long chatId, int messageId, String data) {
+        CallbackQuery query = new CallbackQuery();
+        query.setId(String.valueOf(updateIds.get()));
+        query.setFrom(user(chatId));
+        query.setMessage(botMessage(chatId, messageId));
+        query.setData(data);
+
+        Update update = new Update();
+        update.setUpdateId(updateIds.incrementAndGet());
+        update.setCallbackQuery(query);
+        return update;
+    }
+
+    private static User user(long id) {
+        User user = new User(id, "User" + id, false);
+        user.setUserName("user" + id);
+        return user;
+    }
+
+    private static Message botMessage(long chatId, int messageId) {
+        Message message = new Message();
+        message.setMessageId(messageId);
+        message.setChat(new Chat(chatId, "private"));
+        message.setDate((int) (System.currentTimeMillis() / 1000));
+        return message;
+    }
+}
@@ -0,0 +1,72 @@
+package org.altmir.bench;
+
+import org.altmir.dispatch.UpdateDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Путь обработки сообщения от апдейта до постановки ответа в очередь отправки.
+ * Сеть заменена {@link StubbedBot}, база — временный файл SQLite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpdateHandlingBenchmark {
+    private static final int USERS = 10_000;
+    private static final int BATCH = 1_000;
+
+    private BenchmarkDatabase database;
+    private StubbedBot bot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(USERS, 10_000);
+        bot = new StubbedBot(database.getBootstrap());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        bot.onClosing();
+        database.close();
+    }
+
+    /**
+     * Одно сообщение в вызывающем потоке, без очереди диспетчера.
+     */
+    @Benchmark
+    public void handleUpdate() {
+        bot.handleUpdate(SyntheticUpdates.randomUserMessage(USERS));
+    }
+
+    /**
+     * Пачка сообщений через onUpdateReceived: ждём, пока диспетчер обработает все.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void onUpdateReceived() {
+        UpdateDispatcher dispatcher = bot.getDispatcher();
+        long target = dispatcher.getProcessingLatency().getCount() + BATCH;
+        for (int i = 0; i < BATCH; i++) {
+            bot.onUpdateReceived(SyntheticUpdates.randomUserMessage(USERS));
+        }
+        while (dispatcher.getProcessingLatency().getCount() < target) {
+            Thread.onSpinWait();
+        }
+    }
+}
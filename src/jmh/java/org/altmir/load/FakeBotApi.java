@@ -0,0 +1,204 @@
+package org.altmir.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Локальная замена api.telegram.org: отвечает на вызовы бота успешным ответом
+ * после задержки {@code latencyMillis}, отдаёт поставленные в очередь апдейты через getUpdates
+ * и запоминает кнопки подтверждения игр, которые бот присылает администраторам.
+ */
+@Slf4j
+class FakeBotApi implements AutoCloseable {
+    private static final int MAX_POLL_WAIT_MS = 1000;
+    private static final Set<String> BOOLEAN_METHODS = new HashSet<>(Arrays.asList(
+            "answercallbackquery", "deletemessage", "deletewebhook", "setwebhook", "setmycommands"));
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "fake-bot-api");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long latencyMillis;
+    private final AtomicInteger messageIds = new AtomicInteger();
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+    private final BlockingQueue<Update> updates = new LinkedBlockingQueue<>();
+    private final Queue<ApproveButton> approveButtons = new ConcurrentLinkedQueue<>();
+
+    FakeBotApi(long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        // Без TCP_NODELAY встроенный HttpServer упирается в delayed ACK и отвечает не быстрее ~40 мс
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Значение для telegram.apiUrl: токен дописывается к нему как в настоящем Bot API.
+     */
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/bot";
+    }
+
+    /**
+     * Ставит апдейт в очередь для long polling: бот заберёт его следующим getUpdates.
+     */
+    void offerUpdate(Update update) {
+        updates.add(update);
+    }
+
+    ApproveButton pollApproveButton() {
+        return approveButtons.poll();
+    }
+
+    Map<String, Long> getCallCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        calls.forEach((method, count) -> counts.put(method, count.sum()));
+        return counts;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase();
+            calls.computeIfAbsent(method, m -> new LongAdder()).increment();
+
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            JsonNode request = body.length == 0 ? mapper.createObjectNode() : mapper.readTree(body);
+
+            JsonNode result;
+            if ("getupdates".equals(method)) {
+                result = pollUpdates(request);
+            } else {
+                sleep(latencyMillis);
+                result = BOOLEAN_METHODS.contains(method) ? mapper.getNodeFactory().booleanNode(true) : sentMessage(request);
+            }
+
+            ObjectNode response = mapper.createObjectNode();
+            response.put("ok", true);
+            response.set("result", result);
+            byte[] bytes = mapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (RuntimeException e) {
+            log.error("❌ Ошибка фейкового Bot API", e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private JsonNode pollUpdates(JsonNode request) {
+        int limit = request.path("limit").asInt(100);
+        long waitMs = Math.min(TimeUnit.SECONDS.toMillis(request.path("timeout").asInt(0)), MAX_POLL_WAIT_MS);
+
+        ArrayNode result = mapper.createArrayNode();
+        try {
+            Update first = updates.poll(waitMs, TimeUnit.MILLISECONDS);
+            if (first != null) {
+                result.add(mapper.valueToTree(first));
+                Update next;
+                while (result.size() < limit && (next = updates.poll()) != null) {
+                    result.add(mapper.valueToTree(next));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    /**
+     * Ответ как на sendMessage/editMessageText; сообщения с кнопкой "approve_..." запоминаются.
+     */
+    private JsonNode sentMessage(JsonNode request) {
+        long chatId = request.path("chat_id").asLong();
+        int messageId = messageIds.incrementAndGet();
+
+        for (JsonNode row : request.path("reply_markup").path("inline_keyboard")) {
+            for (JsonNode button : row) {
+                String data = button.path("callback_data").asText("");
+                if (data.startsWith("approve_")) {
+                    approveButtons.add(new ApproveButton(chatId, messageId, data));
+                }
+            }
+        }
+
+        ObjectNode chat = mapper.createObjectNode();
+        chat.put("id", chatId);
+        chat.put("type", "private");
+
+        ObjectNode message = mapper.createObjectNode();
+        message.put("message_id", messageId);
+        message.put("date", System.currentTimeMillis() / 1000);
+        message.set("chat", chat);
+        message.put("text", request.path("text").asText(""));
+        return message;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Кнопка "✅ Подтвердить" под сообщением администратору.
+     */
+    static final class ApproveButton {
+        final long chatId;
+        final int messageId;
+        final String data;
+
+        ApproveButton(long chatId, int messageId, String data) {
+            this.chatId = chatId;
+            this.messageId = messageId;
+            this.data = data;
+        }
+    }
+}
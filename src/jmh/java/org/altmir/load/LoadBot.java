@@ -0,0 +1,50 @@
+package org.altmir.load;
+
+import org.altmir.Bootstrap;
+import org.altmir.PaintballBot;
+import org.altmir.metrics.LatencyHistogram;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Бот под нагрузкой: запоминает, когда генератор выпустил апдейт, и после обработки
+ * записывает полное время от выпуска до конца обработчика, включая очередь диспетчера
+ * и, в режиме long polling, доставку через getUpdates.
+ */
+class LoadBot extends PaintballBot {
+    private final Map<Integer, Long> emittedAt = new ConcurrentHashMap<>();
+    private final LatencyHistogram handling = new LatencyHistogram();
+    private final LongAdder handled = new LongAdder();
+
+    LoadBot(Bootstrap bootstrap) {
+        super("load_bot", "0:load", bootstrap);
+    }
+
+    void markEmitted(Update update) {
+        emittedAt.put(update.getUpdateId(), System.nanoTime());
+    }
+
+    @Override
+    public void handleUpdate(Update update) {
+        try {
+            super.handleUpdate(update);
+        } finally {
+            Long start = emittedAt.remove(update.getUpdateId());
+            if (start != null) {
+                handling.recordSince(start);
+            }
+            handled.increment();
+        }
+    }
+
+    LatencyHistogram getHandlingLatency() {
+        return handling;
+    }
+
+    long getHandledCount() {
+        return handled.sum();
+    }
+}
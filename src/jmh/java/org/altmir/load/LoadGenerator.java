@@ -0,0 +1,185 @@
+package org.altmir.load;
+
+import org.altmir.AppConfig;
+import org.altmir.Bootstrap;
+import org.altmir.dao.User;
+import org.altmir.db.PoolMetrics;
+import org.altmir.db.Storage;
+import org.altmir.dispatch.UpdateDispatcher;
+import org.altmir.metrics.LatencyHistogram;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.generics.BotSession;
+import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Нагрузочный стенд: поднимает бота на временной базе против {@link FakeBotApi}
+ * и с заданной частотой подаёт апдейты из {@link UpdateMix}.
+ *
+ * <pre>
+ * mvn -P benchmark -DskipTests test-compile exec:java@load-test \
+ *     -Dload.profile=match-burst -Dload.rate=300 -Dload.duration=60 -Dload.path=polling
+ * </pre>
+ *
+ * Настройки (системные свойства):
+ * load.profile — start-storm, match-burst, approval-wave или mixed; load.mix — своя смесь вместо профиля;
+ * load.rate — апдейтов в секунду; load.duration — секунд; load.path — direct (onUpdateReceived) или polling;
+ * load.users — зарегистрированных пользователей; load.admins — администраторов;
+ * load.apiLatencyMs — задержка ответа фейкового Bot API; storage.engine — sqlite или memory. Остальные настройки бота — как в application.properties.
+ */
+public class LoadGenerator {
+    private static final long DRAIN_TIMEOUT_MS = 30_000;
+
+    public static void main(String[] args) throws Exception {
+        AppConfig loadConfig = AppConfig.load();
+        String profile = loadConfig.get("load.profile", "mixed");
+        String mix = loadConfig.get("load.mix", UpdateMix.PROFILES.getOrDefault(profile, ""));
+        int rate = loadConfig.getInt("load.rate", 200);
+        int durationSeconds = loadConfig.getInt("load.duration", 30);
+        boolean polling = "polling".equals(loadConfig.get("load.path", "direct"));
+        int users = loadConfig.getInt("load.users", 5000);
+        int admins = loadConfig.getInt("load.admins", 3);
+        int apiLatencyMs = loadConfig.getInt("load.apiLatencyMs", 25);
+
+        File dbFile = File.createTempFile("kontrabot-load", ".db");
+        Path memoryDir = Files.createTempDirectory("kontrabot-load");
+        PrintStream report = System.out;
+
+        try (FakeBotApi api = new FakeBotApi(apiLatencyMs)) {
+            System.setProperty("database.url", "jdbc:sqlite:" + dbFile.getAbsolutePath());
+            System.setProperty("storage.memory.dir", memoryDir.toString());
+            System.setProperty("telegram.apiUrl", api.getBaseUrl());
+            Bootstrap bootstrap = Bootstrap.start(AppConfig.load());
+            seed(bootstrap, users, admins);
+
+            LoadBot bot = new LoadBot(bootstrap);
+            BotSession session = null;
+            if (polling) {
+                session = new TelegramBotsApi(DefaultBotSession.class).registerBot(bot);
+            }
+            UpdateMix updates = new UpdateMix(mix, users, api);
+
+            report.println("🚀 Нагрузка: " + mix + ", " + rate + " апд/с, " + durationSeconds + " с, путь "
+                    + (polling ? "long polling" : "onUpdateReceived"));
+
+            PoolMetrics pool = bootstrap.getConnectionPool().getMetrics();
+            long readerWaitBefore = pool.getReaderWaitNanos();
+            long writerWaitBefore = pool.getWriterWaitNanos();
+
+            long started = System.nanoTime();
+            long emitted = emit(bot, api, updates, polling, rate, durationSeconds);
+            long emitEnded = System.nanoTime();
+
+            long drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MS);
+            while (bot.getHandledCount() < emitted && System.nanoTime() < drainDeadline) {
+                Thread.sleep(10);
+            }
+            long finished = System.nanoTime();
+
+            if (session != null) {
+                session.stop();
+            }
+
+            printReport(report, bot, pool, emitted, started, emitEnded, finished,
+                    pool.getReaderWaitNanos() - readerWaitBefore, pool.getWriterWaitNanos() - writerWaitBefore, api);
+
+            // Даём очереди отправки разойтись, иначе закрытие оборвёт вызовы на лету
+            while (bot.getOutbound().getQueueDepth() + bot.getOutbound().getInFlightCount() > 0
+                    && System.nanoTime() < drainDeadline) {
+                Thread.sleep(10);
+            }
+            bot.onClosing();
+            bootstrap.getStorage().close();
+            bootstrap.getConnectionPool().close();
+        } finally {
+            String path = dbFile.getAbsolutePath();
+            dbFile.delete();
+            new File(path + "-wal").delete();
+            new File(path + "-shm").delete();
+            try (Stream<Path> files = Files.list(memoryDir)) {
+                files.forEach(file -> file.toFile().delete());
+            }
+            Files.delete(memoryDir);
+        }
+    }
+
+    private static void seed(Bootstrap bootstrap, int users, int admins) {
+        Storage db = bootstrap.getStorage();
+        for (long chatId = 1; chatId <= users; chatId++) {
+            db.saveUser(new User(chatId, "user" + chatId, 0, 0, LocalDateTime.now(), true, false));
+        }
+        // Администраторы получают отдельные chat id, чтобы их не задевали пользовательские сценарии
+        for (int i = 1; i <= admins; i++) {
+            long adminId = 1_000_000_000L + i;
+            db.saveUser(new User(adminId, "admin" + i, 0, 0, LocalDateTime.now(), true, false));
+            bootstrap.getAdminService().addAdmin(adminId, "admin" + i, adminId);
+        }
+    }
+
+    /**
+     * Открытая модель нагрузки: апдейты выпускаются по расписанию независимо от того,
+     * успевает ли бот, поэтому отставание видно в задержке, а не в сниженной частоте.
+     */
+    private static long emit(LoadBot bot, FakeBotApi api, UpdateMix updates, boolean polling,
+                             int rate, int durationSeconds) {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * durationSeconds;
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Update update = updates.next();
+            bot.markEmitted(update);
+            if (polling) {
+                api.offerUpdate(update);
+            } else {
+                bot.onUpdateReceived(update);
+            }
+        }
+        return total;
+    }
+
+    private static void printReport(PrintStream out, LoadBot bot, PoolMetrics pool, long emitted,
+                                     long started, long emitEnded, long finished,
+                                     long readerWaitNanos, long writerWaitNanos, FakeBotApi api) {
+        LatencyHistogram handling = bot.getHandlingLatency();
+        UpdateDispatcher dispatcher = bot.getDispatcher();
+        double emitSeconds = (emitEnded - started) / 1e9;
+        double totalSeconds = (finished - started) / 1e9;
+
+        out.println();
+        out.println("📊 Результаты нагрузки");
+        out.printf("Выпущено апдейтов: %d за %.1f с (%.0f апд/с)%n", emitted, emitSeconds, emitted / emitSeconds);
+        out.printf("Обработано: %d за %.1f с (%.0f апд/с)%n", bot.getHandledCount(), totalSeconds,
+                bot.getHandledCount() / totalSeconds);
+        out.printf("Задержка обработки: p50 %.2f мс, p99 %.2f мс, p99.9 %.2f мс%n",
+                millis(handling.percentileNanos(0.5)), millis(handling.percentileNanos(0.99)),
+                millis(handling.percentileNanos(0.999)));
+        out.printf("Ожидание в очереди диспетчера: p50 %.2f мс, p99 %.2f мс%n",
+                millis(dispatcher.getQueueWait().percentileNanos(0.5)),
+                millis(dispatcher.getQueueWait().percentileNanos(0.99)));
+        out.printf("Конкуренция за БД: ожидание читателей %.1f мс, писателя %.1f мс, макс. ожидание %.2f мс, таймаутов %d%n",
+                millis(readerWaitNanos), millis(writerWaitNanos), millis(pool.getMaxWaitNanos()), pool.getTimeouts());
+        out.println("Пул соединений: " + pool);
+        out.println("Не отправлено в Bot API к концу прогона: " + bot.getOutbound().getQueueDepth()
+                + ", в полёте: " + bot.getOutbound().getInFlightCount());
+        out.println("Вызовы Bot API: " + api.getCallCounts());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,106 @@
+package org.altmir.load;
+
+import org.altmir.bench.SyntheticUpdates;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Смесь апдейтов по весам, например {@code "start=6,accept=3,stats=1"}.
+ * Готовые профили соответствуют типичным пикам: наплыв новых пользователей,
+ * запросы игр сразу после матча и волна подтверждений от администраторов.
+ */
+class UpdateMix {
+    static final Map<String, String> PROFILES = new LinkedHashMap<>();
+
+    static {
+        PROFILES.put("start-storm", "start=6,accept=3,stats=1");
+        PROFILES.put("match-burst", "game=7,stats=2,bonus=1");
+        PROFILES.put("approval-wave", "approve=6,game=2,stats=2");
+        PROFILES.put("mixed", "start=1,accept=1,stats=4,bonus=2,game=2,approve=1");
+    }
+
+    enum Kind {
+        /** /start от нового пользователя. */
+        START,
+        /** Принятие соглашения пользователем, который уже нажал /start. */
+        ACCEPT,
+        STATS,
+        BONUS,
+        /** "🎮 Добавить игру" от зарегистрированного пользователя. */
+        GAME,
+        /** Администратор нажимает "✅ Подтвердить" под уведомлением о запросе. */
+        APPROVE
+    }
+
+    private final Kind[] wheel;
+    private final int users;
+    private final FakeBotApi api;
+    private final AtomicLong newChatIds;
+    private final Queue<Long> awaitingTerms = new ConcurrentLinkedQueue<>();
+
+    UpdateMix(String spec, int users, FakeBotApi api) {
+        this.wheel = parse(spec);
+        this.users = users;
+        this.api = api;
+        this.newChatIds = new AtomicLong(users);
+    }
+
+    private static Kind[] parse(String spec) {
+        List<Kind> wheel = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            Kind kind = Kind.valueOf(pair[0].trim().toUpperCase());
+            int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+            for (int i = 0; i < weight; i++) {
+                wheel.add(kind);
+            }
+        }
+        if (wheel.isEmpty()) {
+            throw new IllegalArgumentException("Пустая смесь апдейтов: " + spec);
+        }
+        return wheel.toArray(new Kind[0]);
+    }
+
+    Update next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (wheel[random.nextInt(wheel.length)]) {
+            case START:
+                return start();
+            case ACCEPT:
+                Long chatId = awaitingTerms.poll();
+                return chatId == null ? start() : SyntheticUpdates.message(chatId, "✅ Принять соглашение");
+            case BONUS:
+                return SyntheticUpdates.message(registeredUser(random), "🎁 Бонусы");
+            case GAME:
+                return SyntheticUpdates.message(registeredUser(random), "🎮 Добавить игру");
+            case APPROVE:
+                FakeBotApi.ApproveButton button = api.pollApproveButton();
+                if (button != null) {
+                    return SyntheticUpdates.callback(button.chatId, button.messageId, button.data);
+                }
+                // Нажимать пока нечего: кнопки появятся, когда бот разошлёт уведомления о запросах
+                return SyntheticUpdates.message(registeredUser(random), "🎮 Добавить игру");
+            case STATS:
+            default:
+                return SyntheticUpdates.message(registeredUser(random), "⭐ Моя статистика");
+        }
+    }
+
+    private Update start() {
+        long chatId = newChatIds.incrementAndGet();
+        awaitingTerms.add(chatId);
+        return SyntheticUpdates.message(chatId, "/start");
+    }
+
+    private long registeredUser(ThreadLocalRandom random) {
+        return random.nextLong(1, users + 1);
+    }
+}
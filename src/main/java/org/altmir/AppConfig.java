@@ -0,0 +1,218 @@
+package org.altmir;
+
+import lombok.extern.slf4j.Slf4j;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Настройки из application.properties. Системные свойства (-Dkey=value) имеют приоритет.
+ */
+@Slf4j
+public class AppConfig {
+    private final Properties properties = new Properties();
+
+    public static AppConfig load() {
+        AppConfig config = new AppConfig();
+        try (InputStream in = AppConfig.class.getClassLoader().getResourceAsStream("application.properties")) {
+            if (in != null) {
+                config.properties.load(in);
+            }
+        } catch (IOException e) {
+            log.error("❌ Ошибка при чтении application.properties", e);
+        }
+        return config;
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = properties.getProperty(key, defaultValue);
+        }
+        return value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(get(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            log.warn("❌ Неверное значение настройки {}, используется {}", key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public String getDatabaseUrl() {
+        return get("database.url", "jdbc:sqlite:paintball_bot.db");
+    }
+
+    public int getReaderPoolSize() {
+        return getInt("database.readerPoolSize", 4);
+    }
+
+    /**
+     * Сколько записей (начисление игры, флаг запроса) фиксируется одной транзакцией.
+     */
+    public int getWriteBatchMaxSize() {
+        return getInt("database.batch.maxSize", 256);
+    }
+
+    /**
+     * Сколько миллисекунд пачка ждёт новых записей после первой; 0 — брать только уже накопившиеся.
+     */
+    public int getWriteBatchMaxDelayMillis() {
+        return getInt("database.batch.maxDelayMillis", 0);
+    }
+
+    public int getDispatchShards() {
+        return getInt("dispatch.shards", 16);
+    }
+
+    public int getDispatchThreads() {
+        return getInt("dispatch.threads", 8);
+    }
+
+    public int getUserCacheSize() {
+        return getInt("cache.users.maxSize", 10000);
+    }
+
+    /**
+     * Через сколько минут брошенный диалог (бот ждёт ввода от администратора) забывается.
+     */
+    public int getConversationTtlMinutes() {
+        return getInt("conversation.ttlMinutes", 30);
+    }
+
+    /**
+     * Сколько изменений бонусов журнал фиксирует одной транзакцией.
+     */
+    public int getLedgerMaxBatch() {
+        return getInt("ledger.maxBatch", 256);
+    }
+
+    /**
+     * Записи журнала бонусов старше этого срока сворачиваются в одну строку на игрока.
+     */
+    public int getLedgerRetentionDays() {
+        return getInt("ledger.retentionDays", 90);
+    }
+
+    public int getLedgerCompactionIntervalMinutes() {
+        return getInt("ledger.compactionIntervalMinutes", 60);
+    }
+
+    /**
+     * Ожидающий запрос на игру старше этого срока истекает, и игрок может отправить новый.
+     */
+    public int getPendingExpiryHours() {
+        return getInt("pending.expiryHours", 72);
+    }
+
+    public int getPendingMaintenanceIntervalMinutes() {
+        return getInt("pending.maintenanceIntervalMinutes", 15);
+    }
+
+    /**
+     * Сколько запросов обслуживание очереди истекает или переносит в архив одной транзакцией.
+     */
+    public int getPendingMaintenanceChunk() {
+        return getInt("pending.maintenanceChunk", 200);
+    }
+
+    /**
+     * sqlite — {@link org.altmir.db.DatabaseManager}, memory — {@link org.altmir.db.memory.MemoryStorage}
+     * с журналом и снимками в каталоге storage.memory.dir.
+     */
+    public String getStorageEngine() {
+        return get("storage.engine", "sqlite");
+    }
+
+    public String getMemoryStorageDir() {
+        return get("storage.memory.dir", "paintball_bot-data");
+    }
+
+    /**
+     * Через сколько миллисекунд после записи журнал хранилища в памяти сбрасывается на диск (fsync).
+     */
+    public int getMemoryStorageSyncMillis() {
+        return getInt("storage.memory.syncMillis", 0);
+    }
+
+    public int getMemoryStorageSnapshotMinutes() {
+        return getInt("storage.memory.snapshotMinutes", 10);
+    }
+
+    public double getGlobalRateLimit() {
+        return Double.parseDouble(get("telegram.rateLimit.global", "30"));
+    }
+
+    public double getPerChatRateLimit() {
+        return Double.parseDouble(get("telegram.rateLimit.perChat", "1"));
+    }
+
+    public int getPerChatBurst() {
+        return getInt("telegram.rateLimit.perChatBurst", 3);
+    }
+
+    /**
+     * Адрес Bot API вместе с префиксом "bot", к которому дописывается токен.
+     * Меняется для локального Bot API сервера или нагрузочного стенда.
+     */
+    public String getTelegramApiUrl() {
+        return get("telegram.apiUrl", "https://api.telegram.org/bot");
+    }
+
+    /**
+     * polling — long polling через getUpdates, webhook — приём апдейтов встроенным HTTP-сервером.
+     */
+    public String getBotMode() {
+        return get("bot.mode", "polling");
+    }
+
+    /**
+     * Публичный https-адрес, по которому Telegram будет слать апдейты (без пути).
+     */
+    public String getWebhookUrl() {
+        return get("webhook.url", "");
+    }
+
+    /**
+     * По умолчанию только loopback: снаружи вебхук должен закрывать https-прокси.
+     */
+    public String getWebhookHost() {
+        return get("webhook.host", "127.0.0.1");
+    }
+
+    public int getWebhookPort() {
+        return getInt("webhook.port", 8443);
+    }
+
+    public String getWebhookPath() {
+        return get("webhook.path", "/telegram/webhook");
+    }
+
+    /**
+     * Секрет для заголовка X-Telegram-Bot-Api-Secret-Token; без него режим webhook не стартует.
+     */
+    public String getWebhookSecret() {
+        return get("webhook.secret", "");
+    }
+
+    public int getWebhookMaxConnections() {
+        return getInt("webhook.maxConnections", 40);
+    }
+
+    /**
+     * Порт эндпоинта /metrics в формате Prometheus; 0 — не поднимать.
+     */
+    public int getMetricsPort() {
+        return getInt("metrics.port", 9464);
+    }
+
+    public String getMetricsHost() {
+        return get("metrics.host", "127.0.0.1");
+    }
+
+    public int getSenderThreads() {
+        return getInt("telegram.senderThreads", 8);
+    }
+}
@@ -0,0 +1,146 @@
+package org.altmir;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.altmir.Service.AdminService;
+import org.altmir.Service.UserService;
+import org.altmir.db.BonusLedger;
+import org.altmir.db.ConnectionPool;
+import org.altmir.db.ConversationStore;
+import org.altmir.db.DatabaseManager;
+import org.altmir.db.Leaderboard;
+import org.altmir.db.LiquibaseMigration;
+import org.altmir.db.PendingMaintenance;
+import org.altmir.db.PoolMetrics;
+import org.altmir.db.Storage;
+import org.altmir.db.UserCache;
+import org.altmir.db.WriteBatcher;
+import org.altmir.db.memory.MemoryStorage;
+import org.altmir.metrics.MetricsRegistry;
+import org.altmir.telegram.RateLimiter;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фаза запуска процесса: один раз применяет миграции, открывает пул соединений
+ * и создаёт общие для всего бота сервисы.
+ */
+@Slf4j
+@Getter
+public class Bootstrap {
+    private final AppConfig config;
+    private final StartupTimer timer;
+    private final MetricsRegistry metrics;
+    private final ConnectionPool connectionPool;
+    private final Storage storage;
+    private final PendingMaintenance pendingMaintenance;
+    private final UserService userService;
+    private final AdminService adminService;
+    private final ConversationStore conversationStore;
+    private final RateLimiter rateLimiter;
+
+    private Bootstrap(AppConfig config, StartupTimer timer, MetricsRegistry metrics, ConnectionPool connectionPool) {
+        this.config = config;
+        this.timer = timer;
+        this.metrics = metrics;
+        this.connectionPool = connectionPool;
+
+        timer.begin("хранилище");
+        Leaderboard leaderboard = new Leaderboard();
+        this.storage = "memory".equals(config.getStorageEngine())
+                ? openMemoryStorage(config, metrics, leaderboard)
+                : openSqliteStorage(config, metrics, connectionPool, leaderboard);
+        this.pendingMaintenance = new PendingMaintenance(storage,
+                TimeUnit.HOURS.toMillis(config.getPendingExpiryHours()), config.getPendingMaintenanceChunk(),
+                TimeUnit.MINUTES.toMillis(config.getPendingMaintenanceIntervalMinutes()));
+        metrics.functionCounter("kontrabot_pending_expired_total", pendingMaintenance::getExpiredCount);
+        metrics.functionCounter("kontrabot_pending_archived_total", pendingMaintenance::getArchivedCount);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            pendingMaintenance.close();
+            storage.close();
+        }, "storage-shutdown"));
+
+        timer.begin("сервисы");
+        this.userService = new UserService(storage);
+        this.adminService = new AdminService(storage, storage, storage);
+        adminService.getRegistry().addListener(ids ->
+                log.info("👑 Список администраторов обновлён, всего: {}", ids.length));
+        this.conversationStore = new ConversationStore(connectionPool,
+                TimeUnit.MINUTES.toMillis(config.getConversationTtlMinutes()));
+        this.rateLimiter = new RateLimiter(config.getGlobalRateLimit(), config.getPerChatRateLimit(), config.getPerChatBurst());
+        pendingMaintenance.addTask(conversationStore::sweep);
+        metrics.gauge("kontrabot_conversations_active", conversationStore::size);
+        timer.end();
+    }
+
+    private static Storage openSqliteStorage(AppConfig config, MetricsRegistry metrics, ConnectionPool pool, Leaderboard leaderboard) {
+        UserCache userCache = new UserCache(config.getUserCacheSize());
+        BonusLedger bonusLedger = new BonusLedger(pool, userCache, leaderboard, config.getLedgerMaxBatch(),
+                TimeUnit.DAYS.toMillis(config.getLedgerRetentionDays()),
+                TimeUnit.MINUTES.toMillis(config.getLedgerCompactionIntervalMinutes()));
+        WriteBatcher writeBatcher = new WriteBatcher(pool, config.getWriteBatchMaxSize(), config.getWriteBatchMaxDelayMillis());
+        DatabaseManager databaseManager = new DatabaseManager(pool, userCache, leaderboard, bonusLedger, writeBatcher);
+        registerDatabaseMetrics(metrics, pool.getMetrics(), userCache);
+        metrics.functionCounter("kontrabot_bonus_ledger_entries_total", bonusLedger::getEntryCount);
+        metrics.functionCounter("kontrabot_bonus_ledger_commits_total", bonusLedger::getBatchCount);
+        metrics.functionCounter("kontrabot_bonus_ledger_compacted_total", bonusLedger::getCompactedCount);
+        metrics.gauge("kontrabot_bonus_ledger_queue_depth", bonusLedger::getQueueDepth);
+        metrics.functionCounter("kontrabot_write_batch_writes_total", writeBatcher::getWriteCount);
+        metrics.functionCounter("kontrabot_write_batch_commits_total", writeBatcher::getBatchCount);
+        metrics.gauge("kontrabot_write_batch_queue_depth", writeBatcher::getQueueDepth);
+        databaseManager.loadLeaderboard();
+        return databaseManager;
+    }
+
+    /**
+     * Игроки, администраторы и запросы живут в памяти; SQLite остаётся только для диалогов и журнала миграций.
+     */
+    private static Storage openMemoryStorage(AppConfig config, MetricsRegistry metrics, Leaderboard leaderboard) {
+        MemoryStorage storage;
+        try {
+            storage = new MemoryStorage(Paths.get(config.getMemoryStorageDir()), leaderboard,
+                    config.getMemoryStorageSyncMillis(),
+                    TimeUnit.MINUTES.toMillis(config.getMemoryStorageSnapshotMinutes()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось восстановить хранилище из " + config.getMemoryStorageDir(), e);
+        }
+        metrics.functionCounter("kontrabot_storage_wal_bytes_total", storage::getWalBytes);
+        metrics.functionCounter("kontrabot_storage_snapshots_total", storage::getSnapshotCount);
+        metrics.functionCounter("kontrabot_storage_write_errors_total", storage::getWriteErrors);
+        return storage;
+    }
+
+    private static void registerDatabaseMetrics(MetricsRegistry metrics, PoolMetrics pool, UserCache userCache) {
+        metrics.functionCounter("kontrabot_db_checkouts_total", pool::getReaderCheckouts, "role", "reader");
+        metrics.functionCounter("kontrabot_db_checkouts_total", pool::getWriterCheckouts, "role", "writer");
+        metrics.functionCounter("kontrabot_db_wait_seconds_total", () -> pool.getReaderWaitNanos() / 1e9, "role", "reader");
+        metrics.functionCounter("kontrabot_db_wait_seconds_total", () -> pool.getWriterWaitNanos() / 1e9, "role", "writer");
+        metrics.functionCounter("kontrabot_db_checkout_timeouts_total", pool::getTimeouts);
+        metrics.functionCounter("kontrabot_user_cache_requests_total", userCache::getHits, "result", "hit");
+        metrics.functionCounter("kontrabot_user_cache_requests_total", userCache::getMisses, "result", "miss");
+        metrics.functionCounter("kontrabot_user_cache_evictions_total", userCache::getEvictions);
+        metrics.gauge("kontrabot_user_cache_size", userCache::size);
+    }
+
+    public static Bootstrap start(AppConfig config) {
+        StartupTimer timer = new StartupTimer();
+
+        timer.begin("миграции");
+        LiquibaseMigration.runMigrations(config.getDatabaseUrl());
+
+        timer.begin("пул соединений");
+        MetricsRegistry metrics = new MetricsRegistry();
+        ConnectionPool pool;
+        try {
+            pool = new ConnectionPool(config.getDatabaseUrl(), config.getReaderPoolSize(), metrics);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось открыть соединения с базой данных", e);
+        }
+        timer.end();
+
+        return new Bootstrap(config, timer, metrics, pool);
+    }
+}
@@ -1,26 +1,70 @@
 package org.altmir;
 
-import org.altmir.db.DatabaseManager;
+import lombok.extern.slf4j.Slf4j;
+import org.altmir.metrics.MetricsServer;
+import org.altmir.telegram.RegisterWebhook;
+import org.altmir.telegram.WebhookServer;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import java.io.IOException;
+
+@Slf4j
 public class Main {
     public static void main(String[] args) {
         try {
-            DatabaseManager dbManager = new DatabaseManager();
+            Bootstrap bootstrap = Bootstrap.start(AppConfig.load());
+            AppConfig config = bootstrap.getConfig();
+            StartupTimer timer = bootstrap.getTimer();
 
-            //Long firstAdminId = 1070503623L;
-            //dbManager.addAdmin(firstAdminId, "EN", firstAdminId);
+            if (config.getMetricsPort() > 0) {
+                MetricsServer metricsServer = new MetricsServer(config.getMetricsHost(), config.getMetricsPort(), bootstrap.getMetrics());
+                metricsServer.start();
+                log.info("📈 Метрики: http://{}:{}/metrics", config.getMetricsHost(), metricsServer.getPort());
+            }
 
-            TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-            botsApi.registerBot(new PaintballBot("Контра - Первоуральск", "8432592072:AAGeUEXPJ52UnEJJpCLuNqOhQa8CZSZ14f0"));
+            timer.begin("регистрация бота");
+            PaintballBot bot = new PaintballBot("Контра - Первоуральск", "8432592072:AAGeUEXPJ52UnEJJpCLuNqOhQa8CZSZ14f0", bootstrap);
+            if ("webhook".equals(config.getBotMode())) {
+                startWebhook(bootstrap, bot);
+            } else {
+                TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+                botsApi.registerBot(bot);
+            }
+            timer.end();
 
-            System.out.println("✅ Бот запущен и готов к работе!");
+            log.info("✅ Бот запущен и готов к работе! Режим: {}", config.getBotMode());
+            log.info("{}", timer.report());
 
-        } catch (TelegramApiException e) {
-            System.err.println("❌ Ошибка запуска бота: " + e.getMessage());
-            e.printStackTrace();
+        } catch (TelegramApiException | IOException e) {
+            log.error("❌ Ошибка запуска бота", e);
+        } catch (IllegalStateException e) {
+            log.error("❌ Бот не запущен: {}", e.getMessage(), e);
+            System.exit(1);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Поднимает приём апдейтов и только потом сообщает Telegram адрес вебхука,
+     * чтобы первые апдейты не ушли в пустоту.
+     */
+    private static void startWebhook(Bootstrap bootstrap, PaintballBot bot) throws IOException, TelegramApiException {
+        AppConfig config = bootstrap.getConfig();
+        if (config.getWebhookSecret().isEmpty()) {
+            throw new IllegalStateException("bot.mode=webhook требует непустой webhook.secret");
+        }
+        WebhookServer server = new WebhookServer(config.getWebhookHost(), config.getWebhookPort(),
+                config.getWebhookPath(), config.getWebhookSecret(), bot::onUpdateReceived);
+        server.start();
+        bootstrap.getMetrics().functionCounter("kontrabot_webhook_updates_total", server::getAcceptedCount, "result", "accepted");
+        bootstrap.getMetrics().functionCounter("kontrabot_webhook_updates_total", server::getRejectedCount, "result", "rejected");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            bot.onClosing();
+        }, "webhook-shutdown"));
+
+        bot.execute(new RegisterWebhook(config.getWebhookUrl() + config.getWebhookPath(), config.getWebhookSecret(),
+                config.getWebhookMaxConnections()));
+    }
+}
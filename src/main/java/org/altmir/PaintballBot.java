@@ -1,12 +1,30 @@
 package org.altmir;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.altmir.Service.AdminService;
+import org.altmir.Service.BonusBatch;
+import org.altmir.Service.PendingQueuePage;
 import org.altmir.Service.UserService;
+import org.altmir.command.Command;
+import org.altmir.command.CommandArgs;
+import org.altmir.command.CommandRouter;
+import org.altmir.dao.PendingGame;
+import org.altmir.db.ConversationStore;
+import org.altmir.dispatch.UpdateDispatcher;
+import org.altmir.metrics.MetricsRegistry;
+import org.altmir.telegram.DeliveryReport;
+import org.altmir.telegram.NotificationDispatcher;
+import org.altmir.telegram.OutboundQueue;
+import org.altmir.telegram.OutboundQueue.Priority;
+import org.slf4j.MDC;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.GetFile;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Document;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.User;
@@ -15,48 +33,216 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.Keyboard
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageReplyMarkup;
 
+@Slf4j
 public class PaintballBot extends TelegramLongPollingBot {
+    private static final long MAX_BONUS_FILE_BYTES = 1024 * 1024;
+    /** Кнопки клавиатур: в метриках это отдельные маршруты, остальной свободный текст идёт как "text". */
+    private static final Set<String> BUTTON_ROUTES = new HashSet<>(Arrays.asList(
+            "🎮 Добавить игру", "⭐ Моя статистика", "🎁 Бонусы", "🏆 Рейтинг", "✅ Принять соглашение",
+            "📊 Статистика пользователя", "🎮 Запросы игр", "⭐ Управление бонусами",
+            "👑 Управление админами", "📋 Справка", "🏠 Главное меню"));
+    /** Префиксы callback data, которые выдаёт сам бот; всё прочее в метриках — "callback:other". */
+    private static final Set<String> CALLBACK_ROUTES = new HashSet<>(Arrays.asList("approve", "reject", "queue"));
+
     private final UserService userService;
     private final AdminService adminService;
     private final String botUsername;
     private final String botToken;
+    private final UpdateDispatcher dispatcher;
+    private final NotificationDispatcher notificationDispatcher;
+    private final OutboundQueue outbound;
+    private final MetricsRegistry metrics;
 
-    private final Map<String, String> adminCommands = new HashMap<>();
-    private final Map<Long, Long> pendingAdminActions = new HashMap<>();
+    private final ConversationStore conversations;
 
-    public PaintballBot(String botUsername, String botToken) {
+    /** Собираются в конструкторе и дальше только читаются из потоков диспетчера. */
+    private final CommandRouter adminCommands;
+    private final CommandRouter adminButtons;
+
+    public PaintballBot(String botUsername, String botToken, Bootstrap bootstrap) {
+        super(createBotOptions(bootstrap.getConfig()), botToken);
         this.botUsername = botUsername;
         this.botToken = botToken;
-        this.userService = new UserService();
-        this.adminService = new AdminService();
+        this.userService = bootstrap.getUserService();
+        this.adminService = bootstrap.getAdminService();
+        this.metrics = bootstrap.getMetrics();
+        this.conversations = bootstrap.getConversationStore();
+        this.dispatcher = new UpdateDispatcher(
+                bootstrap.getConfig().getDispatchShards(),
+                bootstrap.getConfig().getDispatchThreads(),
+                this::handleUpdate);
+        this.notificationDispatcher = new NotificationDispatcher(this, bootstrap.getRateLimiter(), metrics);
+        this.outbound = new OutboundQueue(notificationDispatcher, bootstrap.getRateLimiter());
+        registerMetrics();
+        bootstrap.getPendingMaintenance().addListener(this::notifyExpiredRequests);
+
+        this.adminCommands = createAdminCommands();
+        this.adminButtons = createAdminButtons();
+    }
+
+    /**
+     * Порядок регистрации — порядок в /admin_help.
+     */
+    private CommandRouter createAdminCommands() {
+        return new CommandRouter()
+                .register("/admin_help", "/admin_help", "Показать справку", null,
+                        (chatId, adminId, args) -> showAdminHelp(chatId))
+                .register("/admin_list", "/admin_list", "Список администраторов", null,
+                        (chatId, adminId, args) -> showAdminList(chatId))
+                .register("/admin_add", "/admin_add [ID]", "Добавить администратора", "/admin_add 123456789",
+                        this::handleAdminAddCommand)
+                .register("/admin_remove", "/admin_remove [ID]", "Удалить администратора", "/admin_remove 123456789",
+                        this::handleAdminRemoveCommand)
+                .register("/bonus_add", "/bonus_add [ID] [кол-во]", "Добавить бонусы пользователю", "/bonus_add 987654321 50",
+                        this::handleBonusAddCommand)
+                .register("/bonus_remove", "/bonus_remove [ID] [кол-во]", "Удалить бонусы пользователю", "/bonus_remove 987654321 25",
+                        this::handleBonusRemoveCommand)
+                .register("/bonus_bulk", "/bonus_bulk [ID] [кол-во], ...", "Начислить бонусы списком или CSV-файлом",
+                        "/bonus_bulk 111111111 50, 222222222 30", this::handleBonusBulkCommand)
+                .register("/stats", "/stats [ID]", "Статистика пользователя", "/stats 987654321",
+                        this::handleStatsCommand)
+                .register("/approve", "/approve [ID] [ID] ...", "Подтвердить запросы игр по списку ID", "/approve 12 13 14",
+                        this::handleApproveCommand)
+                .register("/approve_all", "/approve_all", "Подтвердить все ожидающие запросы игр", null,
+                        (chatId, adminId, args) -> handleBatchApproval(chatId, adminService.approveAllPendingRequests(adminId)));
+    }
+
+    private CommandRouter createAdminButtons() {
+        return new CommandRouter()
+                .register("📊 Статистика пользователя", (chatId, adminId, args) ->
+                        sendMessage(chatId, "Для просмотра статистики пользователя отправьте:\n`/stats [ID пользователя]`"))
+                .register("🎮 Запросы игр", (chatId, adminId, args) -> showPendingGameRequests(chatId))
+                .register("⭐ Управление бонусами", (chatId, adminId, args) -> showBonusManagementPanel(chatId))
+                .register("👑 Управление админами", (chatId, adminId, args) -> showAdminManagementPanel(chatId))
+                .register("📋 Справка", (chatId, adminId, args) -> showAdminHelp(chatId));
+    }
+
+    private static DefaultBotOptions createBotOptions(AppConfig config) {
+        DefaultBotOptions options = new DefaultBotOptions();
+        // executeAsync выполняется на пуле DefaultAbsSender, по умолчанию в нём один поток
+        options.setMaxThreads(config.getSenderThreads());
+        options.setBaseUrl(config.getTelegramApiUrl());
+        return options;
+    }
 
-        // Инициализация команд администраторов
-        adminCommands.put("/admin_add", "Добавить администратора");
-        adminCommands.put("/admin_remove", "Удалить администратора");
-        adminCommands.put("/admin_list", "Список администраторов");
-        adminCommands.put("/bonus_add", "Добавить бонусы пользователю");
-        adminCommands.put("/bonus_remove", "Удалить бонусы пользователю");
-        adminCommands.put("/stats", "Статистика пользователя");
-        adminCommands.put("/admin_help", "Показать справку");
+    private void registerMetrics() {
+        metrics.gauge("kontrabot_dispatch_queue_depth", dispatcher::getQueueDepth);
+        metrics.histogram("kontrabot_dispatch_queue_wait_seconds", dispatcher.getQueueWait());
+        metrics.gauge("kontrabot_outbound_queue_depth", outbound::getQueueDepth);
+        metrics.gauge("kontrabot_outbound_in_flight", outbound::getInFlightCount);
+        metrics.functionCounter("kontrabot_outbound_coalesced_total", outbound::getCoalescedCount);
     }
 
     @Override
     public void onUpdateReceived(Update update) {
-        if (update.hasMessage() && update.getMessage().hasText()) {
-            handleMessage(update.getMessage());
-        } else if (update.hasCallbackQuery()) {
-            handleCallbackQuery(update.getCallbackQuery());
+        dispatcher.dispatch(update);
+    }
+
+    public UpdateDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public OutboundQueue getOutbound() {
+        return outbound;
+    }
+
+    @Override
+    public void onClosing() {
+        dispatcher.close();
+        outbound.close();
+        notificationDispatcher.close();
+        super.onClosing();
+    }
+
+    /**
+     * Обрабатывает апдейт в текущем потоке, минуя {@link UpdateDispatcher}.
+     * На время обработки chatId и route лежат в MDC и попадают во все события лога.
+     */
+    public void handleUpdate(Update update) {
+        String route = routeOf(update);
+        Long chatId = chatIdOf(update);
+        MDC.put("route", route);
+        if (chatId != null) {
+            MDC.put("chatId", chatId.toString());
         }
+        long start = System.nanoTime();
+        try {
+            if (update.hasMessage() && update.getMessage().hasText()) {
+                handleMessage(update.getMessage());
+            } else if (update.hasMessage() && update.getMessage().hasDocument()) {
+                handleDocument(update.getMessage());
+            } else if (update.hasCallbackQuery()) {
+                handleCallbackQuery(update.getCallbackQuery());
+            }
+        } catch (RuntimeException e) {
+            metrics.counter("kontrabot_update_errors_total", "route", route).increment();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            metrics.timer("kontrabot_update_seconds", "route", route).record(elapsed);
+            log.atDebug()
+                    .addKeyValue("latencyMs", () -> elapsed / 1_000_000.0)
+                    .log("Апдейт обработан");
+            MDC.remove("route");
+            MDC.remove("chatId");
+        }
+    }
+
+    private static Long chatIdOf(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId();
+        }
+        return null;
+    }
+
+    /**
+     * Метка маршрута для метрик: команда без аргументов, кнопка клавиатуры или префикс callback data.
+     * Свободный текст, неизвестные команды и чужие callback data (их присылает клиент) сводятся к общим меткам,
+     * чтобы число рядов не росло с каждым сообщением.
+     */
+    private String routeOf(Update update) {
+        if (update.hasCallbackQuery()) {
+            String data = update.getCallbackQuery().getData();
+            int separator = data == null ? -1 : data.indexOf('_');
+            String prefix = separator < 0 ? null : data.substring(0, separator);
+            return CALLBACK_ROUTES.contains(prefix) ? "callback:" + prefix : "callback:other";
+        }
+        if (update.hasMessage() && update.getMessage().hasDocument()) {
+            return "document";
+        }
+        if (!update.hasMessage() || !update.getMessage().hasText()) {
+            return "other";
+        }
+        String text = update.getMessage().getText();
+        if (text.startsWith("/")) {
+            Command command = adminCommands.find(text);
+            if (command != null) {
+                return command.getName();
+            }
+            return "/start".equals(text) || text.startsWith("/start ") ? "/start" : "command";
+        }
+        return BUTTON_ROUTES.contains(text) ? text : "text";
     }
 
     private void handleMessage(Message message) {
@@ -66,7 +252,7 @@ public class PaintballBot extends TelegramLongPollingBot {
         Long userId = telegramUser.getId();
         String username = telegramUser.getUserName();
 
-        System.out.println("User ID: " + userId + ", Username: @" + username + ", Chat ID: " + chatId);
+        log.debug("User ID: {}, Username: @{}", userId, username);
 
         // Проверяем, является ли пользователь администратором
         boolean isAdmin = adminService.isAdmin(userId);
@@ -78,19 +264,18 @@ public class PaintballBot extends TelegramLongPollingBot {
                 return;
             }
 
-            // Обрабатываем команды администратора
-            if (text.startsWith("/admin_") || text.startsWith("/bonus_") || text.startsWith("/stats") || "/admin_help".equals(text)) {
-                handleAdminCommand(chatId, text, userId, message);
+            // Команды администратора и кнопки админ-панели
+            if (adminCommands.dispatch(text, chatId, userId) || adminButtons.dispatch(text, chatId, userId)) {
                 return;
             }
 
-            // Обработка кнопок админ-панели
-            if (isAdmin && handleAdminPanelButtons(chatId, text, userId)) {
+            if (text.startsWith("/")) {
+                sendMessage(chatId, "❌ Неизвестная команда. Используйте `/admin_help` для просмотра доступных команд.");
                 return;
             }
 
             // Обработка ожидания ввода от администратора
-            if (pendingAdminActions.containsKey(chatId)) {
+            if (conversations.get(chatId) != null) {
                 handlePendingAdminAction(chatId, text, userId);
                 return;
             }
@@ -118,30 +303,12 @@ public class PaintballBot extends TelegramLongPollingBot {
             case "🎁 Бонусы":
                 handleBonusInfo(chatId);
                 break;
+            case "🏆 Рейтинг":
+                sendMessage(chatId, userService.getLeaderboardText(chatId));
+                break;
         }
     }
 
-    private boolean handleAdminPanelButtons(Long chatId, String text, Long adminId) {
-        switch (text) {
-            case "📊 Статистика пользователя":
-                sendMessage(chatId, "Для просмотра статистики пользователя отправьте:\n`/stats [ID пользователя]`");
-                return true;
-            case "🎮 Запросы игр":
-                showPendingGameRequests(chatId);
-                return true;
-            case "⭐ Управление бонусами":
-                showBonusManagementPanel(chatId);
-                return true;
-            case "👑 Управление админами":
-                showAdminManagementPanel(chatId);
-                return true;
-            case "📋 Справка":
-                showAdminHelp(chatId);
-                return true;
-        }
-        return false;
-    }
-
     private void showAdminPanel(Long chatId, Long adminId) {
         String welcomeMessage = "👑 *Панель администратора*\n\n" +
                 "ID: " + adminId + "\n" +
@@ -153,11 +320,7 @@ public class PaintballBot extends TelegramLongPollingBot {
         message.setParseMode("Markdown");
         message.setReplyMarkup(createAdminKeyboard());
 
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+        outbound.send(message, Priority.REPLY);
     }
 
     private ReplyKeyboardMarkup createAdminKeyboard() {
@@ -235,63 +398,7 @@ public class PaintballBot extends TelegramLongPollingBot {
         keyboard.setKeyboard(rows);
         message.setReplyMarkup(keyboard);
 
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void handleAdminCommand(Long chatId, String command, Long adminId, Message message) {
-        if ("/admin_help".equals(command)) {
-            showAdminHelp(chatId);
-            return;
-        }
-
-        if ("/admin_list".equals(command)) {
-            showAdminList(chatId);
-            return;
-        }
-
-        if (command.startsWith("/stats ")) {
-            handleStatsCommand(chatId, command);
-            return;
-        }
-
-        if (command.startsWith("/admin_add ")) {
-            handleAdminAddCommand(chatId, command, adminId);
-            return;
-        }
-
-        if (command.startsWith("/admin_remove ")) {
-            handleAdminRemoveCommand(chatId, command);
-            return;
-        }
-
-        if (command.startsWith("/bonus_add ")) {
-            handleBonusAddCommand(chatId, command, adminId);
-            return;
-        }
-
-        if (command.startsWith("/bonus_remove ")) {
-            handleBonusRemoveCommand(chatId, command, adminId);
-            return;
-        }
-
-        if ("/admin_add".equals(command)) {
-            sendMessage(chatId, "Для добавления администратора отправьте:\n`/admin_add [ID пользователя]`");
-            pendingAdminActions.put(chatId, 1L);
-            return;
-        }
-
-        if ("/admin_remove".equals(command)) {
-            sendMessage(chatId, "Для удаления администратора отправьте:\n`/admin_remove [ID пользователя]`");
-            pendingAdminActions.put(chatId, 2L);
-            return;
-        }
-
-        // Если команда не распознана
-        sendMessage(chatId, "❌ Неизвестная команда. Используйте `/admin_help` для просмотра доступных команд.");
+        outbound.send(message, Priority.REPLY);
     }
 
     private void showAdminManagementPanel(Long chatId) {
@@ -312,138 +419,341 @@ public class PaintballBot extends TelegramLongPollingBot {
     private void showBonusManagementPanel(Long chatId) {
         String message = "⭐ *Управление бонусами*\n\n" +
                 "• `/bonus_add [ID] [кол-во]` - Добавить бонусы\n" +
-                "• `/bonus_remove [ID] [кол-во]` - Снять бонусы\n\n" +
+                "• `/bonus_remove [ID] [кол-во]` - Снять бонусы\n" +
+                "• `/bonus_bulk` - Начислить бонусы списком или CSV-файлом\n\n" +
                 "Пример: `/bonus_add 123456789 50` - добавить 50 бонусов пользователю 123456789";
 
         sendMessage(chatId, message);
     }
 
     private void showPendingGameRequests(Long chatId) {
-        String message = "🎮 *Запросы на добавление игр*\n\n" +
-                "Новые запросы приходят автоматически. Используйте кнопки для подтверждения или отклонения.";
+        PendingQueuePage page = adminService.getPendingQueueAfter(0);
 
-        sendMessage(chatId, message);
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText(formatPendingQueue(page));
+        message.setParseMode("Markdown");
+        message.setReplyMarkup(createPendingQueueKeyboard(page));
+
+        outbound.send(message, Priority.REPLY);
+    }
+
+    private String formatPendingQueue(PendingQueuePage page) {
+        StringBuilder text = new StringBuilder("🎮 *Запросы на добавление игр*\n\n");
+        if (page.isEmpty()) {
+            text.append("✅ Ожидающих запросов нет.\n\n");
+        } else {
+            DateTimeFormatter format = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+            for (PendingGame game : page.getGames()) {
+                String name = game.getUsername() != null ? "@" + game.getUsername().replace("_", "\\_") : "Игрок";
+                text.append("• `").append(game.getId()).append("` ").append(name)
+                        .append(" (").append(game.getUserChatId()).append(") — ")
+                        .append(game.getRequestDate().format(format)).append("\n");
+            }
+            text.append("\n");
+        }
+        text.append("• `/approve [ID] [ID] ...` - подтвердить несколько запросов\n" +
+                "• `/approve_all` - подтвердить все ожидающие запросы");
+        return text.toString();
+    }
+
+    /**
+     * Кнопки листания несут курсор — id крайнего запроса страницы, а не номер страницы.
+     */
+    private InlineKeyboardMarkup createPendingQueueKeyboard(PendingQueuePage page) {
+        List<InlineKeyboardButton> row = new ArrayList<>();
+        if (page.isHasPrevious()) {
+            InlineKeyboardButton prevBtn = new InlineKeyboardButton();
+            prevBtn.setText("⬅️ Назад");
+            prevBtn.setCallbackData("queue_prev_" + page.getFirstId());
+            row.add(prevBtn);
+        }
+        if (page.isHasNext()) {
+            InlineKeyboardButton nextBtn = new InlineKeyboardButton();
+            nextBtn.setText("Далее ➡️");
+            nextBtn.setCallbackData("queue_next_" + page.getLastId());
+            row.add(nextBtn);
+        }
+        if (row.isEmpty()) {
+            return null;
+        }
+
+        InlineKeyboardMarkup markup = new InlineKeyboardMarkup();
+        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
+        rows.add(row);
+        markup.setKeyboard(rows);
+        return markup;
+    }
+
+    private void handlePendingQueuePage(Long chatId, Integer messageId, String callbackId, Long adminId, String data) {
+        if (!adminService.isAdmin(adminId)) {
+            answerCallbackQuery(callbackId, "⛔ Только для администраторов");
+            return;
+        }
+        String[] parts = data.split("_");
+        long cursor = Long.parseLong(parts[2]);
+        PendingQueuePage page = "next".equals(parts[1])
+                ? adminService.getPendingQueueAfter(cursor)
+                : adminService.getPendingQueueBefore(cursor);
+
+        EditMessageText editMessage = new EditMessageText();
+        editMessage.setChatId(chatId.toString());
+        editMessage.setMessageId(messageId);
+        editMessage.setText(formatPendingQueue(page));
+        editMessage.setParseMode("Markdown");
+        editMessage.setReplyMarkup(createPendingQueueKeyboard(page));
+
+        outbound.enqueue(editMessage, chatId, Priority.CALLBACK);
+        answerCallbackQuery(callbackId, null);
     }
 
     private void showAdminHelp(Long chatId) {
         StringBuilder helpMessage = new StringBuilder("👑 *Команды администратора:*\n\n");
+        StringBuilder examples = new StringBuilder();
 
-        for (Map.Entry<String, String> entry : adminCommands.entrySet()) {
-            helpMessage.append("• ").append(entry.getKey())
-                    .append(" - ").append(entry.getValue()).append("\n");
+        for (Command command : adminCommands.getCommands()) {
+            helpMessage.append("• `").append(command.getUsage()).append("` - ")
+                    .append(command.getDescription()).append("\n");
+            if (command.getExample() != null) {
+                examples.append("• `").append(command.getExample()).append("`\n");
+            }
         }
 
-        helpMessage.append("\n📋 *Примеры использования:*\n");
-        helpMessage.append("• `/admin_add 123456789` - добавить администратора\n");
-        helpMessage.append("• `/admin_remove 123456789` - удалить администратора\n");
-        helpMessage.append("• `/bonus_add 987654321 50` - добавить 50 бонусов\n");
-        helpMessage.append("• `/bonus_remove 987654321 25` - снять 25 бонусов\n");
-        helpMessage.append("• `/stats 987654321` - посмотреть статистику пользователя");
+        helpMessage.append("\n📋 *Примеры использования:*\n").append(examples);
 
         sendMessage(chatId, helpMessage.toString());
     }
 
-    private void handleStatsCommand(Long chatId, String command) {
-        if (command.startsWith("/stats ")) {
-            String[] parts = command.split(" ");
-            if (parts.length == 2) {
-                try {
-                    Long userChatId = Long.parseLong(parts[1]);
-                    String stats = userService.getUserStats(userChatId);
-                    if (stats.contains("не найден")) {
-                        sendMessage(chatId, "❌ Пользователь с ID " + userChatId + " не найден.");
-                    } else {
-                        sendMessage(chatId, "📊 *Статистика пользователя " + userChatId + ":*\n\n" + stats);
-                    }
-                } catch (NumberFormatException e) {
-                    sendMessage(chatId, "❌ Неверный формат ID. Используйте: `/stats [ID пользователя]`");
-                }
+    private void handleStatsCommand(Long chatId, Long adminId, CommandArgs args) {
+        if (args.count() != 1) {
+            sendMessage(chatId, "❌ Неверный формат. Используйте: `/stats [ID пользователя]`");
+            return;
+        }
+        try {
+            Long userChatId = args.nextLong();
+            String stats = userService.getUserStats(userChatId);
+            if (stats.contains("не найден")) {
+                sendMessage(chatId, "❌ Пользователь с ID " + userChatId + " не найден.");
             } else {
-                sendMessage(chatId, "❌ Неверный формат. Используйте: `/stats [ID пользователя]`");
+                sendMessage(chatId, "📊 *Статистика пользователя " + userChatId + ":*\n\n" + stats);
             }
-        } else {
-            sendMessage(chatId, "❌ Неверный формат. Используйте: `/stats [ID пользователя]`");
+        } catch (NumberFormatException e) {
+            sendMessage(chatId, "❌ Неверный формат ID. Используйте: `/stats [ID пользователя]`");
         }
     }
 
-    private void handleAdminAddCommand(Long chatId, String command, Long adminId) {
-        String[] parts = command.split(" ");
-        if (parts.length == 2) {
-            try {
-                Long newAdminId = Long.parseLong(parts[1]);
-                String username = "username";
-                adminService.addAdmin(newAdminId, username, adminId);
-                sendMessage(chatId, "✅ Администратор успешно добавлен!");
-            } catch (NumberFormatException e) {
-                sendMessage(chatId, "❌ Неверный формат ID. Используйте: `/admin_add [числовой ID]`");
-            }
-        } else {
+    private void handleAdminAddCommand(Long chatId, Long adminId, CommandArgs args) {
+        if (!args.hasNext()) {
+            sendMessage(chatId, "Для добавления администратора отправьте:\n`/admin_add [ID пользователя]`");
+            conversations.put(chatId, "/admin_add");
+            return;
+        }
+        if (args.count() != 1) {
             sendMessage(chatId, "❌ Неверный формат. Используйте: `/admin_add [ID пользователя]`");
+            return;
+        }
+        try {
+            Long newAdminId = args.nextLong();
+            String username = "username";
+            adminService.addAdmin(newAdminId, username, adminId);
+            sendMessage(chatId, "✅ Администратор успешно добавлен!");
+        } catch (NumberFormatException e) {
+            sendMessage(chatId, "❌ Неверный формат ID. Используйте: `/admin_add [числовой ID]`");
         }
     }
 
-    private void handleAdminRemoveCommand(Long chatId, String command) {
-        String[] parts = command.split(" ");
-        if (parts.length == 2) {
-            try {
-                Long removeAdminId = Long.parseLong(parts[1]);
-                adminService.removeAdmin(removeAdminId);
-                sendMessage(chatId, "✅ Администратор успешно удален!");
-            } catch (NumberFormatException e) {
-                sendMessage(chatId, "❌ Неверный формат ID. Используйте: `/admin_remove [числовой ID]`");
-            }
-        } else {
+    private void handleAdminRemoveCommand(Long chatId, Long adminId, CommandArgs args) {
+        if (!args.hasNext()) {
+            sendMessage(chatId, "Для удаления администратора отправьте:\n`/admin_remove [ID пользователя]`");
+            conversations.put(chatId, "/admin_remove");
+            return;
+        }
+        if (args.count() != 1) {
             sendMessage(chatId, "❌ Неверный формат. Используйте: `/admin_remove [ID пользователя]`");
+            return;
+        }
+        try {
+            Long removeAdminId = args.nextLong();
+            adminService.removeAdmin(removeAdminId);
+            sendMessage(chatId, "✅ Администратор успешно удален!");
+        } catch (NumberFormatException e) {
+            sendMessage(chatId, "❌ Неверный формат ID. Используйте: `/admin_remove [числовой ID]`");
         }
     }
 
-    private void handleBonusAddCommand(Long chatId, String command, Long adminId) {
-        String[] parts = command.split(" ");
-        if (parts.length == 3) {
-            try {
-                Long userChatId = Long.parseLong(parts[1]);
-                int points = Integer.parseInt(parts[2]);
-                adminService.addBonusPoints(userChatId, points, adminId);
-                sendMessage(chatId, "✅ Бонусы успешно добавлены пользователю!");
-            } catch (NumberFormatException e) {
-                sendMessage(chatId, "❌ Неверный формат. Используйте: `/bonus_add [ID пользователя] [количество баллов]`");
-            }
-        } else {
+    private void handleBonusAddCommand(Long chatId, Long adminId, CommandArgs args) {
+        if (args.count() != 2) {
+            sendMessage(chatId, "❌ Неверный формат. Используйте: `/bonus_add [ID пользователя] [количество баллов]`");
+            return;
+        }
+        try {
+            Long userChatId = args.nextLong();
+            int points = args.nextInt();
+            adminService.addBonusPoints(userChatId, points, adminId).whenComplete((applied, error) ->
+                    sendMessage(chatId, bonusReply(applied, error, "✅ Бонусы успешно добавлены пользователю!")));
+        } catch (NumberFormatException e) {
             sendMessage(chatId, "❌ Неверный формат. Используйте: `/bonus_add [ID пользователя] [количество баллов]`");
         }
     }
 
-    private void handleBonusRemoveCommand(Long chatId, String command, Long adminId) {
-        String[] parts = command.split(" ");
-        if (parts.length == 3) {
-            try {
-                Long userChatId = Long.parseLong(parts[1]);
-                int points = Integer.parseInt(parts[2]);
-                adminService.removeBonusPoints(userChatId, points, adminId);
-                sendMessage(chatId, "✅ Бонусы успешно сняты у пользователя!");
-            } catch (NumberFormatException e) {
-                sendMessage(chatId, "❌ Неверный формат. Используйте: `/bonus_remove [ID пользователя] [количество баллов]`");
-            }
-        } else {
+    /**
+     * Ответ отправляется, когда изменение уже сохранено, из потока записи, а не из обработчика.
+     */
+    private static String bonusReply(Boolean applied, Throwable error, String success) {
+        if (error != null) {
+            return "❌ Не удалось изменить бонусы. Попробуйте позже.";
+        }
+        return Boolean.TRUE.equals(applied) ? success : "❌ Пользователь не найден!";
+    }
+
+    private void handleBonusRemoveCommand(Long chatId, Long adminId, CommandArgs args) {
+        if (args.count() != 2) {
             sendMessage(chatId, "❌ Неверный формат. Используйте: `/bonus_remove [ID пользователя] [количество баллов]`");
+            return;
+        }
+        try {
+            Long userChatId = args.nextLong();
+            int points = args.nextInt();
+            adminService.removeBonusPoints(userChatId, points, adminId).whenComplete((applied, error) ->
+                    sendMessage(chatId, bonusReply(applied, error, "✅ Бонусы успешно сняты у пользователя!")));
+        } catch (NumberFormatException e) {
+            sendMessage(chatId, "❌ Неверный формат. Используйте: `/bonus_remove [ID пользователя] [количество баллов]`");
+        }
+    }
+
+    private void handleBonusBulkCommand(Long chatId, Long adminId, CommandArgs args) {
+        if (!args.hasNext()) {
+            sendMessage(chatId, "Отправьте пары `[ID] [кол-во]` по одной на строку или через запятую, " +
+                    "либо CSV-файл со столбцами ID и количество баллов.");
+            conversations.put(chatId, "/bonus_bulk");
+            return;
         }
+        applyBonusBatch(chatId, adminId, new StringReader(args.rest()));
+    }
+
+    /**
+     * CSV для /bonus_bulk: файл с подписью /bonus_bulk или ответом на приглашение команды.
+     */
+    private void handleDocument(Message message) {
+        Long chatId = message.getChatId();
+        Long userId = message.getFrom().getId();
+        if (!adminService.isAdmin(userId)) {
+            return;
+        }
+        String caption = message.getCaption();
+        boolean captioned = caption != null && caption.startsWith("/bonus_bulk");
+        if (!captioned && !"/bonus_bulk".equals(conversations.get(chatId))) {
+            sendMessage(chatId, "ℹ️ Чтобы начислить бонусы из CSV, отправьте файл с подписью `/bonus_bulk`.");
+            return;
+        }
+        conversations.remove(chatId);
+
+        Document document = message.getDocument();
+        if (document.getFileSize() != null && document.getFileSize() > MAX_BONUS_FILE_BYTES) {
+            sendMessage(chatId, "❌ Файл слишком большой: не больше 1 МБ.");
+            return;
+        }
+        try (InputStream in = downloadFileAsStream(execute(new GetFile(document.getFileId())))) {
+            applyBonusBatch(chatId, userId, new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (TelegramApiException | IOException e) {
+            log.error("❌ Ошибка загрузки файла начислений", e);
+            sendMessage(chatId, "❌ Не удалось загрузить файл. Попробуйте ещё раз.");
+        }
+    }
+
+    private void applyBonusBatch(Long chatId, Long adminId, Reader input) {
+        BonusBatch batch;
+        try {
+            batch = BonusBatch.parse(input);
+        } catch (IOException e) {
+            log.error("❌ Ошибка чтения начислений", e);
+            sendMessage(chatId, "❌ Не удалось прочитать список начислений.");
+            return;
+        }
+        if (!batch.getErrors().isEmpty()) {
+            sendMessage(chatId, "❌ Начисления не применены, исправьте ошибки:\n" + String.join("\n", batch.getErrors()));
+            return;
+        }
+        if (batch.size() == 0) {
+            sendMessage(chatId, "❌ Список начислений пуст. Формат: `[ID] [кол-во]` по одной паре на строку.");
+            return;
+        }
+
+        List<Long> missing = adminService.applyBonusBatch(batch, adminId);
+        if (missing == null) {
+            sendMessage(chatId, "❌ Ошибка при начислении бонусов. Ничего не изменено, попробуйте позже.");
+            return;
+        }
+        StringBuilder summary = new StringBuilder(String.format("✅ Начисления применены: %d из %d строк (сумма по списку: %d баллов).",
+                batch.size() - missing.size(), batch.size(), batch.getTotalPoints()));
+        if (!missing.isEmpty()) {
+            summary.append("\n⚠️ Не найдены пользователи: ")
+                    .append(missing.subList(0, Math.min(missing.size(), 20)));
+            if (missing.size() > 20) {
+                summary.append(" и ещё ").append(missing.size() - 20);
+            }
+        }
+        sendMessage(chatId, summary.toString());
+    }
+
+    private void handleApproveCommand(Long chatId, Long adminId, CommandArgs args) {
+        List<Long> requestIds = new ArrayList<>(args.count());
+        try {
+            while (args.hasNext()) {
+                requestIds.add(args.nextLong());
+            }
+        } catch (NumberFormatException e) {
+            requestIds.clear();
+        }
+        if (requestIds.isEmpty()) {
+            sendMessage(chatId, "❌ Неверный формат. Используйте: `/approve [ID запроса] [ID запроса] ...`");
+            return;
+        }
+
+        handleBatchApproval(chatId, adminService.approveGameRequests(requestIds, adminId));
+    }
+
+    private void handleBatchApproval(Long chatId, List<PendingGame> approved) {
+        if (approved.isEmpty()) {
+            sendMessage(chatId, "ℹ️ Нет ожидающих запросов для подтверждения.");
+            return;
+        }
+
+        List<SendMessage> notifications = new ArrayList<>(approved.size());
+        for (PendingGame game : approved) {
+            SendMessage message = new SendMessage();
+            message.setChatId(game.getUserChatId().toString());
+            message.setText("✅ Ваша игра подтверждена администратором! +10 бонусов\n\n" +
+                    userService.getUserStats(game.getUserChatId()));
+            message.setParseMode("Markdown");
+            notifications.add(message);
+        }
+        outbound.sendAll(notifications, Priority.NOTIFICATION);
+
+        sendMessage(chatId, "✅ Подтверждено запросов: " + approved.size());
     }
 
     private void handlePendingAdminAction(Long chatId, String text, Long adminId) {
-        Long actionType = pendingAdminActions.get(chatId);
+        String action = conversations.get(chatId);
+
+        if ("/bonus_bulk".equals(action)) {
+            conversations.remove(chatId);
+            applyBonusBatch(chatId, adminId, new StringReader(text));
+            return;
+        }
 
         try {
             Long targetId = Long.parseLong(text);
 
-            if (actionType == 1L) { // Добавление администратора
+            if ("/admin_add".equals(action)) { // Добавление администратора
                 adminService.addAdmin(targetId, "username", adminId);
                 sendMessage(chatId, "✅ Администратор успешно добавлен!");
-            } else if (actionType == 2L) { // Удаление администратора
+            } else if ("/admin_remove".equals(action)) { // Удаление администратора
                 adminService.removeAdmin(targetId);
                 sendMessage(chatId, "✅ Администратор успешно удален!");
             }
 
-            pendingAdminActions.remove(chatId);
+            conversations.remove(chatId);
 
         } catch (NumberFormatException e) {
             sendMessage(chatId, "❌ Неверный формат ID. Отправьте числовой ID пользователя.");
@@ -478,11 +788,7 @@ public class PaintballBot extends TelegramLongPollingBot {
         message.setText(welcomeText);
         message.setReplyMarkup(keyboard);
 
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+        outbound.send(message, Priority.REPLY);
     }
 
     private ReplyKeyboardMarkup createMainKeyboard() {
@@ -497,6 +803,7 @@ public class PaintballBot extends TelegramLongPollingBot {
 
         KeyboardRow row2 = new KeyboardRow();
         row2.add("🎁 Бонусы");
+        row2.add("🏆 Рейтинг");
 
         rows.add(row1);
         rows.add(row2);
@@ -516,7 +823,8 @@ public class PaintballBot extends TelegramLongPollingBot {
             Long requestId = adminService.createGameRequest(chatId, username);
 
             if (requestId != null) {
-                userService.setPendingRequestStatus(chatId, true);
+                // Ждём фиксации: следующий апдейт этого чата должен увидеть флаг
+                userService.setPendingRequestStatus(chatId, true).join();
 
                 sendMessage(chatId, "✅ Запрос на добавление игры отправлен администраторам. " +
                         "Ожидайте подтверждения.\n\n" +
@@ -527,7 +835,7 @@ public class PaintballBot extends TelegramLongPollingBot {
                 sendMessage(chatId, "❌ Ошибка при создании запроса. Попробуйте позже.");
             }
         } catch (Exception e) {
-            System.err.println("❌ Ошибка в handleGameRequest: " + e.getMessage());
+            log.error("❌ Ошибка в handleGameRequest", e);
             sendMessage(chatId, "❌ Произошла ошибка. Попробуйте позже.");
         }
     }
@@ -546,18 +854,36 @@ public class PaintballBot extends TelegramLongPollingBot {
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"))
         );
 
+        List<SendMessage> adminMessages = new ArrayList<>(adminIds.size());
         for (Long adminId : adminIds) {
             SendMessage adminMsg = new SendMessage();
             adminMsg.setChatId(adminId.toString());
             adminMsg.setText(message);
             adminMsg.setReplyMarkup(createAdminApproveKeyboard(requestId));
+            adminMessages.add(adminMsg);
+        }
 
-            try {
-                execute(adminMsg);
-            } catch (TelegramApiException e) {
-                System.err.println("❌ Ошибка при отправке уведомления администратору " + adminId + ": " + e.getMessage());
+        outbound.sendAll(adminMessages, Priority.NOTIFICATION).thenAccept(reports -> {
+            int delivered = 0;
+            for (DeliveryReport report : reports) {
+                if (report.isDelivered()) {
+                    delivered++;
+                }
             }
+            log.info("📨 Запрос {}: уведомлено администраторов {} из {}", requestId, delivered, reports.size());
+        });
+    }
+
+    private void notifyExpiredRequests(List<PendingGame> expired) {
+        List<SendMessage> notifications = new ArrayList<>(expired.size());
+        for (PendingGame game : expired) {
+            SendMessage message = new SendMessage();
+            message.setChatId(game.getUserChatId().toString());
+            message.setText("⌛ Ваш запрос на добавление игры не был обработан вовремя и закрыт.\n\n" +
+                    "Вы можете отправить новый запрос.");
+            notifications.add(message);
         }
+        outbound.sendAll(notifications, Priority.NOTIFICATION);
     }
 
     private InlineKeyboardMarkup createAdminApproveKeyboard(Long requestId) {
@@ -588,55 +914,62 @@ public class PaintballBot extends TelegramLongPollingBot {
         Long chatId = callbackQuery.getMessage().getChatId();
 
         try {
-            if (data.startsWith("approve_")) {
+            if (data.startsWith("queue_")) {
+                handlePendingQueuePage(chatId, messageId, callbackId, adminId, data);
+
+            } else if (data.startsWith("approve_")) {
                 Long requestId = Long.parseLong(data.split("_")[1]);
-                adminService.approveGameRequest(requestId, adminId);
+                Long userChatId = adminService.approveGameRequest(requestId, adminId);
 
-                Long userChatId = adminService.getUserChatIdFromRequest(requestId);
-                if (userChatId != null) {
-                    sendMessage(userChatId, "✅ Ваша игра подтверждена администратором! +10 бонусов");
-                    sendMessage(userChatId, userService.getUserStats(userChatId));
+                if (userChatId == null) {
+                    handleAlreadyProcessed(chatId, messageId, callbackId, requestId);
+                    return;
                 }
 
+                sendMessage(userChatId, "✅ Ваша игра подтверждена администратором! +10 бонусов", Priority.NOTIFICATION);
+                sendMessage(userChatId, userService.getUserStats(userChatId), Priority.NOTIFICATION);
+
                 editAdminMessage(chatId, messageId, "✅ Запрос одобрен", requestId);
 
                 answerCallbackQuery(callbackId, "✅ Игра подтверждена");
 
             } else if (data.startsWith("reject_")) {
                 Long requestId = Long.parseLong(data.split("_")[1]);
-                adminService.rejectGameRequest(requestId, adminId);
+                Long userChatId = adminService.rejectGameRequest(requestId, adminId);
 
-                Long userChatId = adminService.getUserChatIdFromRequest(requestId);
-                if (userChatId != null) {
-                    sendMessage(userChatId, "❌ Ваш запрос на игру отклонен администратором.");
+                if (userChatId == null) {
+                    handleAlreadyProcessed(chatId, messageId, callbackId, requestId);
+                    return;
                 }
 
+                sendMessage(userChatId, "❌ Ваш запрос на игру отклонен администратором.", Priority.NOTIFICATION);
+
                 editAdminMessage(chatId, messageId, "❌ Запрос отклонен", requestId);
 
                 answerCallbackQuery(callbackId, "❌ Игра отклонена");
             }
         } catch (Exception e) {
-            System.err.println("❌ Ошибка обработки callback: " + e.getMessage());
+            log.error("❌ Ошибка обработки callback", e);
             answerCallbackQuery(callbackId, "❌ Произошла ошибка");
         }
     }
 
-    private void editAdminMessage(Long chatId, Integer messageId, String newText, Long requestId) {
-        try {
-            EditMessageText editMessage = new EditMessageText();
-            editMessage.setChatId(chatId.toString());
-            editMessage.setMessageId(messageId);
+    private void handleAlreadyProcessed(Long chatId, Integer messageId, String callbackId, Long requestId) {
+        editAdminMessage(chatId, messageId, "⚠️ Запрос уже обработан", requestId);
+        answerCallbackQuery(callbackId, "⚠️ Запрос уже обработан");
+    }
 
-            String originalText = getOriginalMessageText(requestId);
-            editMessage.setText(newText + "\n\n" + originalText);
+    private void editAdminMessage(Long chatId, Integer messageId, String newText, Long requestId) {
+        EditMessageText editMessage = new EditMessageText();
+        editMessage.setChatId(chatId.toString());
+        editMessage.setMessageId(messageId);
 
-            editMessage.setReplyMarkup(null);
+        String originalText = getOriginalMessageText(requestId);
+        editMessage.setText(newText + "\n\n" + originalText);
 
-            execute(editMessage);
+        editMessage.setReplyMarkup(null);
 
-        } catch (TelegramApiException e) {
-            System.err.println("❌ Ошибка при редактировании сообщения: " + e.getMessage());
-        }
+        outbound.enqueue(editMessage, chatId, Priority.CALLBACK);
     }
 
     private String getOriginalMessageText(Long requestId) {
@@ -649,11 +982,7 @@ public class PaintballBot extends TelegramLongPollingBot {
         answer.setCallbackQueryId(callbackId);
         answer.setText(text);
 
-        try {
-            execute(answer);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+        outbound.enqueue(answer, null, Priority.CALLBACK);
     }
 
     private void handleBonusInfo(Long chatId) {
@@ -675,16 +1004,16 @@ public class PaintballBot extends TelegramLongPollingBot {
     }
 
     private void sendMessage(Long chatId, String text) {
+        sendMessage(chatId, text, Priority.REPLY);
+    }
+
+    private void sendMessage(Long chatId, String text, Priority priority) {
         SendMessage message = new SendMessage();
         message.setChatId(chatId.toString());
         message.setText(text);
         message.setParseMode("Markdown");
 
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+        outbound.send(message, priority);
     }
 
     @Override
@@ -0,0 +1,55 @@
+package org.altmir.Service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Множество ID администраторов в памяти. Хранится как отсортированный long[],
+ * который никогда не меняется после публикации: при изменении собирается новый
+ * массив и атомарно подменяет старый. Проверка {@link #contains(long)} — двоичный
+ * поиск без блокировок и аллокаций.
+ */
+public class AdminRegistry {
+    private volatile long[] adminIds = new long[0];
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public boolean contains(long userId) {
+        return Arrays.binarySearch(adminIds, userId) >= 0;
+    }
+
+    public synchronized void replaceAll(Collection<Long> ids) {
+        long[] next = new long[ids.size()];
+        int i = 0;
+        for (Long id : ids) {
+            next[i++] = id;
+        }
+        Arrays.sort(next);
+        adminIds = next;
+
+        for (Listener listener : listeners) {
+            listener.onAdminsChanged(next.clone());
+        }
+    }
+
+    /**
+     * Копия текущего набора ID в порядке возрастания.
+     */
+    public long[] snapshot() {
+        return adminIds.clone();
+    }
+
+    public int size() {
+        return adminIds.length;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        void onAdminsChanged(long[] adminIds);
+    }
+}
@@ -1,69 +1,154 @@
 package org.altmir.Service;
 
-import org.altmir.db.DatabaseManager;
+import lombok.extern.slf4j.Slf4j;
+import org.altmir.dao.PendingGame;
+import org.altmir.db.AdminRepository;
+import org.altmir.db.PendingGameRepository;
+import org.altmir.db.UserRepository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 public class AdminService {
-    private final DatabaseManager databaseManager;
-
-    public AdminService() {
-        this.databaseManager = new DatabaseManager();
+    public static final int PENDING_PAGE_SIZE = 10;
+
+    private final AdminRepository admins;
+    private final PendingGameRepository games;
+    private final UserRepository users;
+    private final AdminRegistry registry = new AdminRegistry();
+
+    public AdminService(AdminRepository admins, PendingGameRepository games, UserRepository users) {
+        this.admins = admins;
+        this.games = games;
+        this.users = users;
+        reloadAdmins();
     }
 
     public boolean isAdmin(Long userId) {
-        return databaseManager.isAdmin(userId);
+        return userId != null && registry.contains(userId);
     }
 
     public List<Long> getAllAdminIds() {
-        return databaseManager.getAllAdminIds();
+        long[] ids = registry.snapshot();
+        List<Long> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    public AdminRegistry getRegistry() {
+        return registry;
     }
 
     public List<String> getAdminList() {
-        return databaseManager.getAdminList();
+        return admins.getAdminList();
     }
 
     public void addAdmin(Long userId, String username, Long addedBy) {
-        databaseManager.addAdmin(userId, username, addedBy);
+        admins.addAdmin(userId, username, addedBy);
+        reloadAdmins();
     }
 
     public void removeAdmin(Long userId) {
-        databaseManager.removeAdmin(userId);
+        admins.removeAdmin(userId);
+        reloadAdmins();
+    }
+
+    /**
+     * При ошибке чтения остаётся прежний набор: сбой базы не должен лишать прав всех администраторов.
+     */
+    private synchronized void reloadAdmins() {
+        List<Long> ids;
+        try {
+            ids = admins.getAllAdminIds();
+        } catch (RuntimeException e) {
+            log.error("❌ Не удалось обновить список администраторов, оставлен прежний", e);
+            return;
+        }
+        registry.replaceAll(ids);
     }
 
     public Long createGameRequest(Long userChatId, String username) {
-        return databaseManager.addPendingGame(userChatId, username);
+        return games.addPendingGame(userChatId, username);
     }
 
-    public void approveGameRequest(Long requestId, Long adminId) {
-        databaseManager.updatePendingGameStatus(requestId, "APPROVED", adminId);
+    /**
+     * @return chat id игрока или {@code null}, если запрос уже обработан другим администратором
+     */
+    public Long approveGameRequest(Long requestId, Long adminId) {
+        return games.approvePendingGame(requestId, adminId);
+    }
 
-        Long userChatId = databaseManager.getUserChatIdFromRequest(requestId);
-        if (userChatId != null) {
-            databaseManager.addGame(userChatId);
-            databaseManager.setPendingRequestStatus(userChatId, false); // Сбрасываем флаг
-        }
+    public List<PendingGame> approveGameRequests(List<Long> requestIds, Long adminId) {
+        return games.approvePendingGames(requestIds, adminId);
     }
 
-    public void rejectGameRequest(Long requestId, Long adminId) {
-        databaseManager.updatePendingGameStatus(requestId, "REJECTED", adminId);
+    public List<PendingGame> approveAllPendingRequests(Long adminId) {
+        return games.approvePendingGames(null, adminId);
+    }
 
-        Long userChatId = databaseManager.getUserChatIdFromRequest(requestId);
-        if (userChatId != null) {
-            databaseManager.setPendingRequestStatus(userChatId, false);
-        }
+    /**
+     * @return chat id игрока или {@code null}, если запрос уже обработан другим администратором
+     */
+    public Long rejectGameRequest(Long requestId, Long adminId) {
+        return games.rejectPendingGame(requestId, adminId);
     }
 
     public Long getUserChatIdFromRequest(Long requestId) {
-        return databaseManager.getUserChatIdFromRequest(requestId);
+        return games.getUserChatIdFromRequest(requestId);
+    }
+
+    /**
+     * Страница очереди после запроса afterId ({@code 0} — с начала). Если после курсора
+     * всё уже обработано, возвращает последнюю страницу.
+     */
+    public PendingQueuePage getPendingQueueAfter(long afterId) {
+        List<PendingGame> page = games.getPendingGamesAfter(afterId, PENDING_PAGE_SIZE + 1);
+        if (page.isEmpty() && afterId > 0) {
+            return getPendingQueueBefore(Long.MAX_VALUE);
+        }
+        boolean hasNext = page.size() > PENDING_PAGE_SIZE;
+        if (hasNext) {
+            page = page.subList(0, PENDING_PAGE_SIZE);
+        }
+        boolean hasPrevious = !page.isEmpty() && !games.getPendingGamesBefore(page.get(0).getId(), 1).isEmpty();
+        return new PendingQueuePage(page, hasPrevious, hasNext);
+    }
+
+    /**
+     * Страница очереди перед запросом beforeId. Если до курсора всё уже обработано, возвращает первую страницу.
+     */
+    public PendingQueuePage getPendingQueueBefore(long beforeId) {
+        List<PendingGame> page = games.getPendingGamesBefore(beforeId, PENDING_PAGE_SIZE + 1);
+        if (page.isEmpty()) {
+            return beforeId == Long.MAX_VALUE ? new PendingQueuePage(page, false, false) : getPendingQueueAfter(0);
+        }
+        boolean hasPrevious = page.size() > PENDING_PAGE_SIZE;
+        if (hasPrevious) {
+            page = page.subList(1, page.size());
+        }
+        boolean hasNext = !games.getPendingGamesAfter(page.get(page.size() - 1).getId(), 1).isEmpty();
+        return new PendingQueuePage(page, hasPrevious, hasNext);
+    }
+
+    /**
+     * @return true после сохранения, false — игрока нет
+     */
+    public CompletableFuture<Boolean> addBonusPoints(Long userChatId, int points, Long adminId) {
+        return users.addBonusPoints(userChatId, points, adminId);
     }
 
-    public void addBonusPoints(Long userChatId, int points, Long adminId) {
-        databaseManager.addBonusPoints(userChatId, points);
+    public CompletableFuture<Boolean> removeBonusPoints(Long userChatId, int points, Long adminId) {
+        return users.addBonusPoints(userChatId, -points, adminId);
     }
 
-    public void removeBonusPoints(Long userChatId, int points, Long adminId) {
-        databaseManager.addBonusPoints(userChatId, -points);
+    /**
+     * @return ID игроков, которых нет в базе, или {@code null}, если пакет не применён
+     */
+    public List<Long> applyBonusBatch(BonusBatch batch, Long adminId) {
+        return users.addBonusPointsBatch(batch.getChatIds(), batch.getPoints(), batch.size(), adminId);
     }
 }
\ No newline at end of file
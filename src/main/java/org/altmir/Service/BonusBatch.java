@@ -0,0 +1,192 @@
+package org.altmir.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Пакет начислений «ID игрока — баллы» для /bonus_bulk. Пары хранятся в примитивных массивах,
+ * разбор идёт потоком по символам: подходит и для текста команды, и для CSV-файла
+ * ({@code 123,50}, {@code 123;50}, {@code 123 50}; на строке одна или несколько пар целиком).
+ * Нечисловая первая строка считается заголовком CSV и пропускается.
+ */
+public class BonusBatch {
+    private static final int MAX_ERRORS = 5;
+
+    private long[] chatIds = new long[16];
+    private int[] points = new int[16];
+    private int size;
+    private final List<String> errors = new ArrayList<>();
+
+    public static BonusBatch parse(Reader reader) throws IOException {
+        BonusBatch batch = new BonusBatch();
+        new Parser(batch).run(reader);
+        return batch;
+    }
+
+    public void add(long chatId, int amount) {
+        if (size == chatIds.length) {
+            chatIds = Arrays.copyOf(chatIds, size * 2);
+            points = Arrays.copyOf(points, size * 2);
+        }
+        chatIds[size] = chatId;
+        points[size] = amount;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getChatId(int index) {
+        return chatIds[index];
+    }
+
+    public int getPoints(int index) {
+        return points[index];
+    }
+
+    /**
+     * Внутренний массив без копии: значимы только первые {@link #size()} элементов.
+     */
+    long[] getChatIds() {
+        return chatIds;
+    }
+
+    /**
+     * Внутренний массив без копии: значимы только первые {@link #size()} элементов.
+     */
+    int[] getPoints() {
+        return points;
+    }
+
+    public long getTotalPoints() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += points[i];
+        }
+        return total;
+    }
+
+    /**
+     * Первые ошибки разбора в виде «строка N: ...»; пустой список — ввод корректен.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    private void error(int line, String message) {
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("строка " + line + ": " + message);
+        }
+    }
+
+    /**
+     * Разбирает числа прямо из потока, не создавая строк на каждое значение.
+     */
+    private static final class Parser {
+        private final BonusBatch batch;
+        private int line = 1;
+        private boolean lineHasNumber;
+        private boolean skipLine;
+
+        private long value;
+        private boolean negative;
+        private int digits;
+        private boolean invalid;
+        private boolean inToken;
+
+        private long pendingChatId;
+        private boolean hasPendingChatId;
+
+        private Parser(BonusBatch batch) {
+            this.batch = batch;
+        }
+
+        private void run(Reader reader) throws IOException {
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    accept(buffer[i]);
+                }
+            }
+            endLine();
+        }
+
+        private void accept(char c) {
+            if (c == '\n') {
+                endLine();
+                line++;
+                lineHasNumber = false;
+                skipLine = false;
+                return;
+            }
+            if (skipLine) {
+                return;
+            }
+            if (c == ' ' || c == ',' || c == ';' || c == '\t' || c == '\r') {
+                endToken();
+                return;
+            }
+            if (!inToken) {
+                inToken = true;
+                value = 0;
+                negative = false;
+                digits = 0;
+                invalid = false;
+            }
+            if (c == '-' && digits == 0 && !negative) {
+                negative = true;
+            } else if (c >= '0' && c <= '9' && !invalid) {
+                value = value * 10 + (c - '0');
+                digits++;
+                invalid = digits > 18;
+            } else {
+                invalid = true;
+            }
+        }
+
+        /**
+         * Пара не может переходить на следующую строку.
+         */
+        private void endLine() {
+            endToken();
+            if (hasPendingChatId) {
+                batch.error(line, "нет количества баллов для ID " + pendingChatId);
+                hasPendingChatId = false;
+            }
+        }
+
+        private void endToken() {
+            if (!inToken) {
+                return;
+            }
+            inToken = false;
+            if (invalid || digits == 0) {
+                if (line == 1 && !lineHasNumber) {
+                    skipLine = true;
+                } else {
+                    batch.error(line, "неверное число");
+                    hasPendingChatId = false;
+                }
+                return;
+            }
+            lineHasNumber = true;
+            long number = negative ? -value : value;
+            if (!hasPendingChatId) {
+                pendingChatId = number;
+                hasPendingChatId = true;
+                return;
+            }
+            hasPendingChatId = false;
+            if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+                batch.error(line, "слишком большое количество баллов");
+                return;
+            }
+            batch.add(pendingChatId, (int) number);
+        }
+    }
+}
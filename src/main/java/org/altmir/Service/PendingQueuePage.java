@@ -0,0 +1,30 @@
+package org.altmir.Service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.altmir.dao.PendingGame;
+
+import java.util.List;
+
+/**
+ * Страница очереди ожидающих запросов. Курсоры для кнопок — id первого и последнего запроса на странице.
+ */
+@Getter
+@AllArgsConstructor
+public class PendingQueuePage {
+    private final List<PendingGame> games;
+    private final boolean hasPrevious;
+    private final boolean hasNext;
+
+    public boolean isEmpty() {
+        return games.isEmpty();
+    }
+
+    public long getFirstId() {
+        return games.get(0).getId();
+    }
+
+    public long getLastId() {
+        return games.get(games.size() - 1).getId();
+    }
+}
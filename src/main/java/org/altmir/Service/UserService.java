@@ -1,55 +1,58 @@
 package org.altmir.Service;
 
 import org.altmir.dao.User;
-import org.altmir.db.DatabaseManager;
+import org.altmir.db.Leaderboard;
+import org.altmir.db.Leaderboard.Metric;
+import org.altmir.db.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
 
 public class UserService {
-    private final DatabaseManager databaseManager;
+    private final UserRepository users;
 
-    public UserService() {
-        this.databaseManager = new DatabaseManager();
+    public UserService(UserRepository users) {
+        this.users = users;
     }
 
     public User getOrCreateUser(Long chatId, String username) {
-        User user = databaseManager.getUser(chatId);
+        User user = users.getUser(chatId);
 
         if (user == null) {
             user = new User(chatId, username, 0, 0, LocalDateTime.now(), false, false);
-            databaseManager.saveUser(user);
+            users.saveUser(user);
         }
 
         return user;
     }
 
     public boolean hasAcceptedTerms(Long chatId) {
-        User user = databaseManager.getUser(chatId);
+        User user = users.getUser(chatId);
         return user != null && user.isTermsAccepted();
     }
 
     public boolean hasPendingRequest(Long chatId) {
-        return databaseManager.hasPendingRequest(chatId);
+        return users.hasPendingRequest(chatId);
     }
 
-    public void setPendingRequestStatus(Long chatId, boolean status) {
-        databaseManager.setPendingRequestStatus(chatId, status);
+    public CompletableFuture<Boolean> setPendingRequestStatus(Long chatId, boolean status) {
+        return users.setPendingRequestStatus(chatId, status);
     }
 
     public void acceptTerms(Long chatId) {
-        databaseManager.updateUserTermsAccepted(chatId, true);
+        users.updateUserTermsAccepted(chatId, true);
     }
 
-    public void addGame(Long chatId) {
-        databaseManager.addGame(chatId);
+    public CompletableFuture<Boolean> addGame(Long chatId) {
+        return users.addGame(chatId);
     }
 
-    public void addBonusPoints(Long chatId, int points) {
-        databaseManager.addBonusPoints(chatId, points);
+    public CompletableFuture<Boolean> addBonusPoints(Long chatId, int points) {
+        return users.addBonusPoints(chatId, points, null);
     }
 
     public String getUserStats(Long chatId) {
-        User user = databaseManager.getUser(chatId);
+        User user = users.getUser(chatId);
         if (user != null) {
             return String.format(
                     "🎯 Ваша статистика:\n\n" +
@@ -65,13 +68,35 @@ public class UserService {
         return "❌ Пользователь не найден!";
     }
 
+    /**
+     * Топ-10 по играм и место игрока по играм и по бонусам.
+     */
+    public String getLeaderboardText(Long chatId) {
+        Leaderboard leaderboard = users.getLeaderboard();
+        StringBuilder text = new StringBuilder("🏆 *Топ-10 по играм:*\n\n");
+
+        for (Leaderboard.Entry entry : leaderboard.top(Metric.GAMES, 10)) {
+            User user = users.getUser(entry.getChatId());
+            String name = user != null && user.getUsername() != null ? "@" + user.getUsername().replace("_", "\\_") : "Игрок " + entry.getChatId();
+            text.append(entry.getRank()).append(". ").append(name)
+                    .append(" — ").append(entry.getValue()).append("\n");
+        }
+
+        int gamesRank = leaderboard.rank(Metric.GAMES, chatId);
+        if (gamesRank > 0) {
+            text.append(String.format("\n📍 Ваше место: %d по играм, %d по бонусам из %d игроков",
+                    gamesRank, leaderboard.rank(Metric.BONUS, chatId), leaderboard.size()));
+        }
+        return text.toString();
+    }
+
     public int getBonusPoints(Long chatId) {
-        User user = databaseManager.getUser(chatId);
+        User user = users.getUser(chatId);
         return user != null ? user.getBonusPoints() : 0;
     }
 
     public int getGamesPlayed(Long chatId) {
-        User user = databaseManager.getUser(chatId);
+        User user = users.getUser(chatId);
         return user != null ? user.getGamesPlayed() : 0;
     }
 }
\ No newline at end of file
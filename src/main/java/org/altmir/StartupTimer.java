@@ -0,0 +1,43 @@
+package org.altmir;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеряет длительность фаз запуска и печатает итоговый отчёт.
+ */
+public class StartupTimer {
+    private final long createdAt = System.nanoTime();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private String currentPhase;
+    private long phaseStart;
+
+    public void begin(String phase) {
+        end();
+        currentPhase = phase;
+        phaseStart = System.nanoTime();
+    }
+
+    public void end() {
+        if (currentPhase != null) {
+            phases.put(currentPhase, System.nanoTime() - phaseStart);
+            currentPhase = null;
+        }
+    }
+
+    public long getPhaseMillis(String phase) {
+        Long nanos = phases.get(phase);
+        return nanos == null ? 0 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public String report() {
+        end();
+        StringBuilder sb = new StringBuilder("⏱ Время запуска:\n");
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            sb.append(String.format("  %-20s %6d мс%n", phase.getKey(), TimeUnit.NANOSECONDS.toMillis(phase.getValue())));
+        }
+        sb.append(String.format("  %-20s %6d мс", "итого", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - createdAt)));
+        return sb.toString();
+    }
+}
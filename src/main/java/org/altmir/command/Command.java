@@ -0,0 +1,18 @@
+package org.altmir.command;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Зарегистрированная в {@link CommandRouter} команда. Описание, формат и пример
+ * нужны только для справки; у кнопок клавиатуры они пустые.
+ */
+@Getter
+@AllArgsConstructor
+public class Command {
+    private final String name;
+    private final String usage;
+    private final String description;
+    private final String example;
+    private final CommandHandler handler;
+}
@@ -0,0 +1,80 @@
+package org.altmir.command;
+
+/**
+ * Аргументы после имени команды. Числа разбираются прямо из исходной строки,
+ * без split и substring. Разделители — пробелы и запятые.
+ */
+public class CommandArgs {
+    private final String text;
+    private int pos;
+
+    public CommandArgs(String text, int pos) {
+        this.text = text;
+        this.pos = pos;
+    }
+
+    public boolean hasNext() {
+        skipSeparators();
+        return pos < text.length();
+    }
+
+    /**
+     * Сколько аргументов осталось, не сдвигая позицию.
+     */
+    public int count() {
+        int count = 0;
+        boolean inToken = false;
+        for (int i = pos; i < text.length(); i++) {
+            boolean separator = isSeparator(text.charAt(i));
+            if (!separator && !inToken) {
+                count++;
+            }
+            inToken = !separator;
+        }
+        return count;
+    }
+
+    /**
+     * @throws NumberFormatException если аргументов не осталось или следующий не целое число
+     */
+    public long nextLong() {
+        skipSeparators();
+        int start = pos;
+        int end = start;
+        while (end < text.length() && !isSeparator(text.charAt(end))) {
+            end++;
+        }
+        if (start == end) {
+            throw new NumberFormatException("нет аргумента");
+        }
+        pos = end;
+        // Long.parseLong с диапазоном не создаёт промежуточную строку
+        return Long.parseLong(text, start, end, 10);
+    }
+
+    public int nextInt() {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("вне диапазона int: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Остаток строки без ведущих разделителей, например свободный текст после команды.
+     */
+    public String rest() {
+        skipSeparators();
+        return text.substring(pos).trim();
+    }
+
+    private void skipSeparators() {
+        while (pos < text.length() && isSeparator(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == ',' || c == '\n' || c == '\t';
+    }
+}
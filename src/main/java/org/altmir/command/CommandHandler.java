@@ -0,0 +1,6 @@
+package org.altmir.command;
+
+@FunctionalInterface
+public interface CommandHandler {
+    void handle(Long chatId, Long userId, CommandArgs args);
+}
@@ -0,0 +1,141 @@
+package org.altmir.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Маршрутизатор текстовых команд и кнопок. Команды регистрируются один раз при запуске,
+ * после этого роутер только читается и безопасен для потоков диспетчера.
+ * <p>
+ * Поиск идёт по хэш-таблице с открытой адресацией: сначала по всему тексту (кнопки, команды
+ * без аргументов), затем по первому слову. Хэш слова считается прямо по исходной строке,
+ * так что на каждое сообщение не создаются ни подстроки, ни массивы.
+ */
+public class CommandRouter {
+    private final List<Command> commands = new ArrayList<>();
+    private Command[] table = new Command[16];
+
+    /**
+     * Кнопка или служебная команда без справки.
+     */
+    public CommandRouter register(String name, CommandHandler handler) {
+        return register(new Command(name, null, null, null, handler));
+    }
+
+    public CommandRouter register(String name, String usage, String description, String example, CommandHandler handler) {
+        return register(new Command(name, usage, description, example, handler));
+    }
+
+    private CommandRouter register(Command command) {
+        if (lookup(command.getName(), command.getName().length(), command.getName().hashCode()) != null) {
+            throw new IllegalArgumentException("Команда уже зарегистрирована: " + command.getName());
+        }
+        commands.add(command);
+        if (commands.size() * 2 > table.length) {
+            table = new Command[table.length * 2];
+            for (Command existing : commands) {
+                insert(existing);
+            }
+        } else {
+            insert(command);
+        }
+        return this;
+    }
+
+    /**
+     * Находит команду и вызывает её обработчик.
+     *
+     * @return false, если такой команды нет
+     */
+    public boolean dispatch(String text, Long chatId, Long userId) {
+        Command command = lookup(text, text.length(), text.hashCode());
+        int argsStart = text.length();
+        if (command == null) {
+            int end = commandEnd(text);
+            if (end == text.length()) {
+                return false;
+            }
+            command = lookup(text, end, hash(text, end));
+            if (command == null) {
+                return false;
+            }
+            // "/stats@KontraBot 123": имя бота после @ пропускаем вместе с командой
+            argsStart = text.charAt(end) == '@' ? skipMention(text, end) : end;
+        }
+        command.getHandler().handle(chatId, userId, new CommandArgs(text, argsStart));
+        return true;
+    }
+
+    /**
+     * Команда, которой будет обработан текст, или null.
+     */
+    public Command find(String text) {
+        Command command = lookup(text, text.length(), text.hashCode());
+        if (command != null) {
+            return command;
+        }
+        int end = commandEnd(text);
+        return end == text.length() ? null : lookup(text, end, hash(text, end));
+    }
+
+    /**
+     * Команды в порядке регистрации — для справки.
+     */
+    public List<Command> getCommands() {
+        return Collections.unmodifiableList(commands);
+    }
+
+    private void insert(Command command) {
+        int mask = table.length - 1;
+        int i = spread(command.getName().hashCode()) & mask;
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+        table[i] = command;
+    }
+
+    private Command lookup(String text, int length, int hash) {
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; table[i] != null; i = (i + 1) & mask) {
+            String name = table[i].getName();
+            if (name.length() == length && name.regionMatches(0, text, 0, length)) {
+                return table[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Тот же хэш, что у {@link String#hashCode()}, но только по первым length символам.
+     */
+    private static int hash(String text, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static int commandEnd(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '@' || c == '\n') {
+                return i;
+            }
+        }
+        return text.length();
+    }
+
+    private static int skipMention(String text, int from) {
+        int i = from;
+        while (i < text.length() && text.charAt(i) != ' ' && text.charAt(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+}
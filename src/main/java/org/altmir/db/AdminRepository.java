@@ -0,0 +1,25 @@
+package org.altmir.db;
+
+import org.altmir.dao.Admin;
+
+import java.util.List;
+
+public interface AdminRepository {
+    boolean isAdmin(Long userId);
+
+    List<Admin> getAllAdmins();
+
+    /**
+     * @throws IllegalStateException если список не удалось прочитать: пустой список здесь означал бы «админов нет»
+     */
+    List<Long> getAllAdminIds();
+
+    /**
+     * Строки вида «@username (ID: 123)» для списка в чате.
+     */
+    List<String> getAdminList();
+
+    void addAdmin(Long userId, String username, Long addedBy);
+
+    void removeAdmin(Long userId);
+}
@@ -0,0 +1,268 @@
+package org.altmir.db;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Журнал изменений бонусов: каждое начисление и списание — новая строка в bonus_ledger,
+ * а users.bonus_points остаётся готовым остатком для быстрого чтения.
+ * <p>
+ * Одиночные начисления идут через {@link #append}: запросы из разных потоков копятся в очереди,
+ * и поток журнала фиксирует их пачкой в одной транзакции (group commit). Тот же поток периодически
+ * сворачивает записи старше срока хранения в одну строку COMPACTED на игрока, поэтому сумма delta
+ * по игроку всегда равна его остатку.
+ */
+@Slf4j
+public class BonusLedger implements AutoCloseable {
+    public static final String REASON_ADMIN = "ADMIN";
+    public static final String REASON_SYSTEM = "SYSTEM";
+    public static final String REASON_BULK = "BULK";
+    public static final String REASON_GAME = "GAME";
+    public static final String REASON_COMPACTED = "COMPACTED";
+
+    static final String INSERT_ENTRY_SQL = "INSERT INTO bonus_ledger (chat_id, delta, reason, admin_id, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String APPLY_BALANCE_SQL = "UPDATE users SET bonus_points = bonus_points + ? WHERE chat_id = ? " +
+            "RETURNING games_played, bonus_points";
+    private static final String INSERT_COMPACTED_SQL = "INSERT INTO bonus_ledger (chat_id, delta, reason, admin_id, created_at) " +
+            "SELECT chat_id, SUM(delta), '" + REASON_COMPACTED + "', NULL, ? FROM bonus_ledger " +
+            "WHERE created_at < ? GROUP BY chat_id HAVING COUNT(*) > 1";
+    private static final String DELETE_COMPACTED_SQL = "DELETE FROM bonus_ledger WHERE created_at < ? AND chat_id IN " +
+            "(SELECT chat_id FROM bonus_ledger WHERE created_at < ? GROUP BY chat_id HAVING COUNT(*) > 1)";
+
+    private final ConnectionPool pool;
+    private final UserCache userCache;
+    private final Leaderboard leaderboard;
+    private final int maxBatch;
+    private final long retentionMillis;
+    private final long compactionIntervalMillis;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong compacted = new AtomicLong();
+    private volatile boolean running = true;
+    private long nextCompaction;
+
+    public BonusLedger(ConnectionPool pool, UserCache userCache, Leaderboard leaderboard,
+                       int maxBatch, long retentionMillis, long compactionIntervalMillis) {
+        this.pool = pool;
+        this.userCache = userCache;
+        this.leaderboard = leaderboard;
+        this.maxBatch = maxBatch;
+        this.retentionMillis = retentionMillis;
+        this.compactionIntervalMillis = compactionIntervalMillis;
+        this.nextCompaction = System.currentTimeMillis() + compactionIntervalMillis;
+        this.writer = new Thread(this::run, "bonus-ledger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Ставит изменение остатка в очередь на запись.
+     *
+     * @return true после фиксации в базе, false — если игрока нет (в журнал ничего не записано)
+     */
+    public CompletableFuture<Boolean> append(long chatId, int delta, String reason, Long adminId) {
+        Entry entry = new Entry(chatId, delta, reason, adminId, System.currentTimeMillis());
+        if (!running) {
+            entry.result.completeExceptionally(new IllegalStateException("Журнал бонусов закрыт"));
+            return entry.result;
+        }
+        queue.add(entry);
+        return entry.result;
+    }
+
+    /**
+     * Записывает строку журнала в транзакции вызывающего, когда изменение остатка
+     * уже сделано его собственным UPDATE (начисление за игру, массовое начисление).
+     */
+    static void bindEntry(PreparedStatement insert, long chatId, int delta, String reason,
+                          Long adminId, long createdAt) throws SQLException {
+        insert.setLong(1, chatId);
+        insert.setInt(2, delta);
+        insert.setString(3, reason);
+        if (adminId == null) {
+            insert.setNull(4, Types.BIGINT);
+        } else {
+            insert.setLong(4, adminId);
+        }
+        insert.setLong(5, createdAt);
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                long wait = Math.max(1, nextCompaction - System.currentTimeMillis());
+                Entry first = queue.poll(Math.min(wait, 1000), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatch - 1);
+                    flush(batch);
+                    batch.clear();
+                }
+                if (running && System.currentTimeMillis() >= nextCompaction) {
+                    compact();
+                    nextCompaction = System.currentTimeMillis() + compactionIntervalMillis;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+
+    private void flush(List<Entry> batch) {
+        // Несколько изменений одного игрока в пачке — один UPDATE с суммой
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (Entry entry : batch) {
+            deltas.merge(entry.chatId, entry.delta, Integer::sum);
+        }
+
+        Map<Long, int[]> counters = new LinkedHashMap<>();
+        try {
+            pool.writeTransaction("ledger_flush", conn -> {
+                PreparedStatement apply = conn.prepare(APPLY_BALANCE_SQL);
+                for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+                    apply.setInt(1, delta.getValue());
+                    apply.setLong(2, delta.getKey());
+                    try (ResultSet rs = apply.executeQuery()) {
+                        if (rs.next()) {
+                            counters.put(delta.getKey(), new int[]{rs.getInt(1), rs.getInt(2)});
+                        }
+                    }
+                }
+
+                PreparedStatement insert = conn.prepare(INSERT_ENTRY_SQL);
+                for (Entry entry : batch) {
+                    if (counters.containsKey(entry.chatId)) {
+                        bindEntry(insert, entry.chatId, entry.delta, entry.reason, entry.adminId, entry.createdAt);
+                        insert.addBatch();
+                    }
+                }
+                insert.executeBatch();
+                return counters;
+            }, applied -> {
+                for (Map.Entry<Long, int[]> user : applied.entrySet()) {
+                    long chatId = user.getKey();
+                    int gamesPlayed = user.getValue()[0];
+                    int bonusPoints = user.getValue()[1];
+                    userCache.update(chatId, cached -> {
+                        cached.setGamesPlayed(gamesPlayed);
+                        cached.setBonusPoints(bonusPoints);
+                    });
+                    leaderboard.update(chatId, gamesPlayed, bonusPoints);
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            log.error("❌ Ошибка записи журнала бонусов, пачка из {} изменений не применена", batch.size(), e);
+            for (Entry entry : batch) {
+                entry.result.completeExceptionally(e);
+            }
+            return;
+        }
+
+        batches.incrementAndGet();
+        for (Entry entry : batch) {
+            boolean written = counters.containsKey(entry.chatId);
+            if (written) {
+                entries.incrementAndGet();
+            }
+            entry.result.complete(written);
+        }
+    }
+
+    /**
+     * Сворачивает записи старше срока хранения: по каждому игроку с несколькими такими записями
+     * остаётся одна строка COMPACTED с их суммой. Строки выбираются по created_at через
+     * idx_bonus_ledger_created_at; строка COMPACTED датируется самой границей, поэтому DELETE
+     * (created_at строго меньше границы) её не задевает.
+     *
+     * @return сколько записей удалено
+     */
+    public int compact() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        try {
+            int removed = pool.writeTransaction("compact_ledger", conn -> {
+                PreparedStatement summarize = conn.prepare(INSERT_COMPACTED_SQL);
+                summarize.setLong(1, cutoff);
+                summarize.setLong(2, cutoff);
+                if (summarize.executeUpdate() == 0) {
+                    return 0;
+                }
+
+                PreparedStatement delete = conn.prepare(DELETE_COMPACTED_SQL);
+                delete.setLong(1, cutoff);
+                delete.setLong(2, cutoff);
+                return delete.executeUpdate();
+            });
+            if (removed > 0) {
+                compacted.addAndGet(removed);
+                log.info("🧾 Журнал бонусов свёрнут: удалено записей {}", removed);
+            }
+            return removed;
+        } catch (SQLException e) {
+            log.error("❌ Ошибка при сворачивании журнала бонусов", e);
+            return 0;
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getEntryCount() {
+        return entries.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getCompactedCount() {
+        return compacted.get();
+    }
+
+    /**
+     * Дописывает очередь и останавливает поток журнала.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Entry {
+        private final long chatId;
+        private final int delta;
+        private final String reason;
+        private final Long adminId;
+        private final long createdAt;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private Entry(long chatId, int delta, String reason, Long adminId, long createdAt) {
+            this.chatId = chatId;
+            this.delta = delta;
+            this.reason = reason;
+            this.adminId = adminId;
+            this.createdAt = createdAt;
+        }
+    }
+}
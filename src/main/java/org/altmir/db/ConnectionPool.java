@@ -0,0 +1,154 @@
+package org.altmir.db;
+
+import org.altmir.metrics.MetricsRegistry;
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Пул соединений к SQLite: одно соединение на запись и ограниченный набор
+ * соединений только для чтения. База переводится в режим WAL, поэтому
+ * читатели не блокируются писателем.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    private static final long ACQUIRE_TIMEOUT_MS = 5000;
+
+    private final PooledConnection writer;
+    private final ReentrantLock writerLock = new ReentrantLock(true);
+    private final BlockingQueue<PooledConnection> readers;
+    private final List<PooledConnection> allReaders = new ArrayList<>();
+    private final PoolMetrics metrics = new PoolMetrics();
+    private final StatementMetrics statementMetrics;
+
+    public ConnectionPool(String url, int readerCount, MetricsRegistry registry) throws SQLException {
+        this.statementMetrics = new StatementMetrics(registry);
+        SQLiteConfig writerConfig = new SQLiteConfig();
+        writerConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        // FULL: commit возвращается после fsync журнала, иначе «зафиксировано» не значит «сохранено»;
+        // стоимость fsync делят между собой записи, которые WriteBatcher и BonusLedger собирают в одну транзакцию
+        writerConfig.setSynchronous(SQLiteConfig.SynchronousMode.FULL);
+        writerConfig.setBusyTimeout(BUSY_TIMEOUT_MS);
+        writerConfig.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+        this.writer = new PooledConnection(writerConfig.createConnection(url));
+
+        SQLiteConfig readerConfig = new SQLiteConfig();
+        readerConfig.setReadOnly(true);
+        readerConfig.setBusyTimeout(BUSY_TIMEOUT_MS);
+        this.readers = new ArrayBlockingQueue<>(readerCount);
+        for (int i = 0; i < readerCount; i++) {
+            PooledConnection reader = new PooledConnection(readerConfig.createConnection(url));
+            allReaders.add(reader);
+            readers.add(reader);
+        }
+    }
+
+    /**
+     * @param statement имя операции для {@code kontrabot_sql_seconds{statement=...}}
+     */
+    public <T> T read(String statement, SqlWork<T> work) throws SQLException {
+        long start = System.nanoTime();
+        PooledConnection conn;
+        try {
+            conn = readers.poll(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Прервано ожидание соединения на чтение", e);
+        }
+        if (conn == null) {
+            metrics.recordTimeout();
+            throw new SQLException("Нет свободного соединения на чтение за " + ACQUIRE_TIMEOUT_MS + " мс");
+        }
+        metrics.recordReaderCheckout(System.nanoTime() - start);
+
+        try {
+            return statementMetrics.time(statement, conn, work);
+        } finally {
+            readers.offer(conn);
+        }
+    }
+
+    public <T> T write(String statement, SqlWork<T> work) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!writerLock.tryLock(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                metrics.recordTimeout();
+                throw new SQLException("Нет свободного соединения на запись за " + ACQUIRE_TIMEOUT_MS + " мс");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Прервано ожидание соединения на запись", e);
+        }
+        metrics.recordWriterCheckout(System.nanoTime() - start);
+
+        try {
+            return statementMetrics.time(statement, writer, work);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    /**
+     * Выполняет работу на соединении записи в одной транзакции: commit при успехе, rollback при ошибке.
+     */
+    public <T> T writeTransaction(String statement, SqlWork<T> work) throws SQLException {
+        return writeTransaction(statement, work, result -> { });
+    }
+
+    /**
+     * Как {@link #writeTransaction(String, SqlWork)}, но afterCommit вызывается после commit, ещё под блокировкой записи:
+     * состояние в памяти обновляется только зафиксированными данными и в том же порядке, что и в базе.
+     */
+    public <T> T writeTransaction(String statement, SqlWork<T> work, Consumer<T> afterCommit) throws SQLException {
+        return write(statement, conn -> {
+            Connection connection = conn.getConnection();
+            connection.setAutoCommit(false);
+            T result;
+            try {
+                result = work.execute(conn);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            afterCommit.accept(result);
+            return result;
+        });
+    }
+
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    public StatementMetrics getStatementMetrics() {
+        return statementMetrics;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        writerLock.lock();
+        try {
+            writer.close();
+        } finally {
+            writerLock.unlock();
+        }
+        for (PooledConnection reader : allReaders) {
+            reader.close();
+        }
+    }
+
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T execute(PooledConnection conn) throws SQLException;
+    }
+}
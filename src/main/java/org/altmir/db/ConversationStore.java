@@ -0,0 +1,147 @@
+package org.altmir.db;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Состояние незавершённых диалогов по chat id (например, бот ждёт от администратора ID пользователя).
+ * Читается из памяти, каждое изменение сразу пишется в таблицу conversation_state, поэтому
+ * начатый диалог переживает перезапуск. Брошенные диалоги истекают через ttl.
+ */
+@Slf4j
+public class ConversationStore {
+    private static final String SELECT_ACTIVE_SQL = "SELECT chat_id, state, expires_at FROM conversation_state WHERE expires_at > ?";
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM conversation_state WHERE expires_at <= ?";
+    private static final String SAVE_STATE_SQL = "INSERT OR REPLACE INTO conversation_state (chat_id, state, expires_at) VALUES (?, ?, ?)";
+    private static final String DELETE_STATE_SQL = "DELETE FROM conversation_state WHERE chat_id = ?";
+
+    private final ConnectionPool pool;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<Long, Entry> states = new ConcurrentHashMap<>();
+
+    public ConversationStore(ConnectionPool pool, long ttlMillis) {
+        this(pool, ttlMillis, System::currentTimeMillis);
+    }
+
+    ConversationStore(ConnectionPool pool, long ttlMillis, LongSupplier clock) {
+        this.pool = pool;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        load();
+    }
+
+    private void load() {
+        long now = clock.getAsLong();
+        sweep();
+        try {
+            pool.read("load_conversations", conn -> {
+                PreparedStatement pstmt = conn.prepare(SELECT_ACTIVE_SQL);
+                pstmt.setLong(1, now);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        states.put(rs.getLong("chat_id"), new Entry(rs.getString("state"), rs.getLong("expires_at")));
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            log.error("❌ Ошибка при загрузке состояния диалогов", e);
+        }
+    }
+
+    /**
+     * Удаляет истёкшие диалоги из таблицы и из памяти. Запускается периодически
+     * ({@link PendingMaintenance#addTask}), иначе брошенный диалог, который больше никто
+     * не читает, висел бы до перезапуска.
+     *
+     * @return сколько строк удалено из таблицы
+     */
+    public int sweep() {
+        long now = clock.getAsLong();
+        // Новый put создаёт новую запись с новым сроком, её проверка не заденет
+        states.values().removeIf(entry -> entry.expiresAt <= now);
+        try {
+            return pool.write("sweep_conversations", conn -> {
+                PreparedStatement pstmt = conn.prepare(DELETE_EXPIRED_SQL);
+                pstmt.setLong(1, now);
+                return pstmt.executeUpdate();
+            });
+        } catch (SQLException e) {
+            log.error("❌ Ошибка при удалении истёкших диалогов", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Текущее состояние диалога или null, если его нет или оно истекло.
+     */
+    public String get(Long chatId) {
+        Entry entry = states.get(chatId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= clock.getAsLong()) {
+            // Удаляем только ту запись, которую проверяли: параллельный put мог уже начать новый диалог
+            if (states.remove(chatId, entry)) {
+                delete(chatId);
+            }
+            return null;
+        }
+        return entry.state;
+    }
+
+    public void put(Long chatId, String state) {
+        Entry entry = new Entry(state, clock.getAsLong() + ttlMillis);
+        try {
+            pool.write("save_conversation", conn -> {
+                PreparedStatement pstmt = conn.prepare(SAVE_STATE_SQL);
+                pstmt.setLong(1, chatId);
+                pstmt.setString(2, state);
+                pstmt.setLong(3, entry.expiresAt);
+                return pstmt.executeUpdate();
+            });
+        } catch (SQLException e) {
+            log.error("❌ Ошибка при сохранении состояния диалога", e);
+        }
+        states.put(chatId, entry);
+    }
+
+    public void remove(Long chatId) {
+        if (states.remove(chatId) != null) {
+            delete(chatId);
+        }
+    }
+
+    public int size() {
+        return states.size();
+    }
+
+    private void delete(Long chatId) {
+        try {
+            pool.write("delete_conversation", conn -> {
+                PreparedStatement pstmt = conn.prepare(DELETE_STATE_SQL);
+                pstmt.setLong(1, chatId);
+                return pstmt.executeUpdate();
+            });
+        } catch (SQLException e) {
+            log.error("❌ Ошибка при удалении состояния диалога", e);
+        }
+    }
+
+    private static final class Entry {
+        private final String state;
+        private final long expiresAt;
+
+        private Entry(String state, long expiresAt) {
+            this.state = state;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
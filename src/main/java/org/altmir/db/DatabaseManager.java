@@ -1,363 +1,844 @@
 package org.altmir.db;
 
+import lombok.extern.slf4j.Slf4j;
 import org.altmir.dao.PendingGame;
 import org.altmir.dao.Admin;
 import org.altmir.dao.User;
 
-import java.sql.*;
-import java.time.LocalDateTime;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Slf4j
+public class DatabaseManager implements Storage {
+    // Порядок колонок — порядок чтения в readUser и параметров SAVE_USER_SQL
+    private static final String USER_COLUMNS = "chat_id, username, games_played, bonus_points, registered_at, terms_accepted, has_pending_request";
+    private static final String SELECT_USER_SQL = "SELECT " + USER_COLUMNS + " FROM users WHERE chat_id = ?";
+    private static final String SAVE_USER_SQL = "INSERT OR REPLACE INTO users (" + USER_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_TERMS_SQL = "UPDATE users SET terms_accepted = ? WHERE chat_id = ?";
+    private static final String ADD_GAME_SQL = "UPDATE users SET games_played = games_played + 1, bonus_points = bonus_points + 10 WHERE chat_id = ? " +
+            "RETURNING games_played, bonus_points";
+    private static final String IS_ADMIN_SQL = "SELECT COUNT(*) FROM admins WHERE user_id = ?";
+    private static final String SELECT_ADMINS_SQL = "SELECT user_id, username, added_by, added_at FROM admins";
+    private static final String SAVE_ADMIN_SQL = "INSERT OR REPLACE INTO admins (user_id, username, added_by, added_at) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_ADMIN_SQL = "DELETE FROM admins WHERE user_id = ?";
+    private static final String INSERT_PENDING_GAME_SQL = "INSERT INTO pending_games (user_chat_id, username, requested_at, status) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_PENDING_STATUS_SQL = "UPDATE pending_games SET status = ?, processed_by = ?, processed_at = ? WHERE id = ?";
+    private static final String SELECT_PENDING_GAME_SQL = "SELECT id, user_chat_id, username, requested_at, status, processed_by, processed_at FROM pending_games WHERE id = ?";
+    private static final String SELECT_ADMIN_IDS_SQL = "SELECT user_id FROM admins";
+    private static final String SELECT_ADMIN_LIST_SQL = "SELECT user_id, username FROM admins";
+    private static final String SELECT_REQUEST_CHAT_ID_SQL = "SELECT user_chat_id FROM pending_games WHERE id = ?";
+    private static final String SELECT_HAS_PENDING_SQL = "SELECT has_pending_request FROM users WHERE chat_id = ?";
+    private static final String UPDATE_HAS_PENDING_SQL = "UPDATE users SET has_pending_request = ? WHERE chat_id = ?";
+    private static final String APPROVE_PENDING_SQL = "UPDATE pending_games SET status = 'APPROVED', processed_by = ?, processed_at = ? " +
+            "WHERE id = ? AND status = 'PENDING' RETURNING user_chat_id";
+    private static final String CREDIT_GAME_SQL = "UPDATE users SET games_played = games_played + 1, bonus_points = bonus_points + 10, has_pending_request = 0 " +
+            "WHERE chat_id = ? RETURNING games_played, bonus_points";
+    private static final String REJECT_PENDING_SQL = "UPDATE pending_games SET status = 'REJECTED', processed_by = ?, processed_at = ? " +
+            "WHERE id = ? AND status = 'PENDING' RETURNING user_chat_id";
+    private static final String CLEAR_PENDING_FLAG_SQL = "UPDATE users SET has_pending_request = 0 WHERE chat_id = ?";
+    private static final String SELECT_ALL_PENDING_SQL = "SELECT id, user_chat_id FROM pending_games WHERE status = 'PENDING'";
+    private static final String SELECT_PENDING_CHAT_ID_SQL = "SELECT user_chat_id FROM pending_games WHERE id = ? AND status = 'PENDING'";
+    // Ключевая пагинация по частичному индексу idx_pending_games_pending: без OFFSET, цена страницы не зависит от её номера
+    private static final String SELECT_PENDING_PAGE_AFTER_SQL = "SELECT id, user_chat_id, username, requested_at FROM pending_games " +
+            "WHERE status = 'PENDING' AND id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_PENDING_PAGE_BEFORE_SQL = "SELECT id, user_chat_id, username, requested_at FROM pending_games " +
+            "WHERE status = 'PENDING' AND id < ? ORDER BY id DESC LIMIT ?";
+    private static final String EXPIRE_PENDING_SQL = "UPDATE pending_games SET status = 'EXPIRED', processed_at = ? WHERE id IN " +
+            "(SELECT id FROM pending_games WHERE status = 'PENDING' AND requested_at < ? ORDER BY requested_at LIMIT ?) " +
+            "RETURNING id, user_chat_id";
+    private static final String ARCHIVE_PROCESSED_SQL = "INSERT OR REPLACE INTO pending_games_archive " +
+            "(id, user_chat_id, status, processed_by, requested_at, processed_at) " +
+            "SELECT id, user_chat_id, status, processed_by, requested_at, processed_at FROM pending_games " +
+            "WHERE status <> 'PENDING' ORDER BY id LIMIT ?";
+    private static final String DELETE_ARCHIVED_SQL = "DELETE FROM pending_games WHERE id IN " +
+            "(SELECT id FROM pending_games WHERE status <> 'PENDING' ORDER BY id LIMIT ?)";
+    private static final String APPROVE_PENDING_BATCH_SQL = "UPDATE pending_games SET status = 'APPROVED', processed_by = ?, processed_at = ? WHERE id = ? AND status = 'PENDING'";
+    private static final String CREDIT_GAME_BATCH_SQL = "UPDATE users SET games_played = games_played + 1, bonus_points = bonus_points + 10, has_pending_request = 0 WHERE chat_id = ?";
+    private static final String ADD_BONUS_BATCH_SQL = "UPDATE users SET bonus_points = bonus_points + ? WHERE chat_id = ?";
+    private static final String SELECT_LEADERBOARD_SQL = "SELECT chat_id, games_played, bonus_points FROM users";
+
+    public static final int GAME_BONUS_POINTS = 10;
+
+    private final ConnectionPool pool;
+    private final UserCache userCache;
+    private final Leaderboard leaderboard;
+    private final BonusLedger bonusLedger;
+    private final WriteBatcher writeBatcher;
+
+    /**
+     * Схема должна быть уже мигрирована: это делает {@link org.altmir.Bootstrap}
+     * один раз на процесс, после чего все сервисы получают этот экземпляр.
+     */
+    public DatabaseManager(ConnectionPool pool, UserCache userCache, Leaderboard leaderboard, BonusLedger bonusLedger,
+                           WriteBatcher writeBatcher) {
+        this.pool = pool;
+        this.userCache = userCache;
+        this.leaderboard = leaderboard;
+        this.bonusLedger = bonusLedger;
+        this.writeBatcher = writeBatcher;
+    }
 
-public class DatabaseManager {
-    private static final String DB_URL = "jdbc:sqlite:paintball_bot.db";
-    private boolean initialized = false;
+    public PoolMetrics getPoolMetrics() {
+        return pool.getMetrics();
+    }
 
-    public DatabaseManager() {
-        initializeDatabase();
+    public UserCache getUserCache() {
+        return userCache;
     }
 
-    private void initializeDatabase() {
-        if (!initialized) {
-            LiquibaseMigration.runMigrations();
-            initialized = true;
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    public BonusLedger getBonusLedger() {
+        return bonusLedger;
+    }
+
+    /**
+     * Собирает рейтинг заново по таблице users. Вызывается при запуске
+     * и после сбоя транзакции, если рейтинг мог разойтись с базой.
+     */
+    public void loadLeaderboard() {
+        try {
+            pool.read("load_leaderboard", conn -> {
+                leaderboard.clear();
+                try (ResultSet rs = conn.prepare(SELECT_LEADERBOARD_SQL).executeQuery()) {
+                    while (rs.next()) {
+                        leaderboard.update(rs.getLong(1), rs.getInt(2), rs.getInt(3));
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            log.error("❌ Ошибка при загрузке рейтинга", e);
         }
     }
 
-    //проверка инициализации бд
     public User getUser(Long chatId) {
-        initializeDatabase();
-        String sql = "SELECT * FROM users WHERE chat_id = ?";
+        User cached = userCache.get(chatId);
+        if (cached != null) {
+            return cached;
+        }
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        long stamp = userCache.stamp();
 
-            pstmt.setLong(1, chatId);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return new User(
-                        rs.getLong("chat_id"),
-                        rs.getString("username"),
-                        rs.getInt("games_played"),
-                        rs.getInt("bonus_points"),
-                        LocalDateTime.parse(rs.getString("registration_date")),
-                        rs.getBoolean("terms_accepted"),
-                        rs.getBoolean("has_pending_request")
-                );
+        try {
+            User user = pool.read("select_user", conn -> {
+                PreparedStatement pstmt = conn.prepare(SELECT_USER_SQL);
+                pstmt.setLong(1, chatId);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? readUser(rs) : null;
+                }
+            });
+            if (user != null) {
+                userCache.putLoaded(user, stamp);
             }
+            return user;
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при получении пользователя: " + e.getMessage());
-            e.printStackTrace();
+            throw new IllegalStateException("Не удалось прочитать пользователя " + chatId, e);
         }
-        return null;
     }
 
-    public void saveUser(User user) {
-        initializeDatabase();
-        String sql = "INSERT OR REPLACE INTO users (chat_id, username, games_played, bonus_points, registration_date, terms_accepted) VALUES (?, ?, ?, ?, ?, ?)";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setLong(1, user.getChatId());
-            pstmt.setString(2, user.getUsername());
-            pstmt.setInt(3, user.getGamesPlayed());
-            pstmt.setInt(4, user.getBonusPoints());
-            pstmt.setString(5, user.getRegistrationDate().toString());
-            pstmt.setBoolean(6, user.isTermsAccepted());
+    /**
+     * Строка из колонок {@link #USER_COLUMNS}, по номерам: без поиска колонки по имени и без разбора текста даты.
+     */
+    private static User readUser(ResultSet rs) throws SQLException {
+        return new User(
+                rs.getLong(1),
+                rs.getString(2),
+                rs.getInt(3),
+                rs.getInt(4),
+                Timestamps.fromMillis(rs.getLong(5)),
+                rs.getBoolean(6),
+                rs.getBoolean(7)
+        );
+    }
 
-            pstmt.executeUpdate();
+    public void saveUser(User user) {
+        try {
+            pool.write("save_user", conn -> {
+                PreparedStatement pstmt = conn.prepare(SAVE_USER_SQL);
+                pstmt.setLong(1, user.getChatId());
+                pstmt.setString(2, user.getUsername());
+                pstmt.setInt(3, user.getGamesPlayed());
+                pstmt.setInt(4, user.getBonusPoints());
+                pstmt.setLong(5, Timestamps.toMillis(user.getRegistrationDate()));
+                pstmt.setBoolean(6, user.isTermsAccepted());
+                pstmt.setBoolean(7, user.isHasPendingRequest());
+
+                pstmt.executeUpdate();
+                userCache.put(user);
+                leaderboard.update(user.getChatId(), user.getGamesPlayed(), user.getBonusPoints());
+                return null;
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при сохранении пользователя: " + e.getMessage());
-            e.printStackTrace();
+            log.error("❌ Ошибка при сохранении пользователя", e);
         }
     }
 
     public void updateUserTermsAccepted(Long chatId, boolean accepted) {
-        String sql = "UPDATE users SET terms_accepted = ? WHERE chat_id = ?";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setBoolean(1, accepted);
-            pstmt.setLong(2, chatId);
-
-            pstmt.executeUpdate();
+        try {
+            pool.write("update_terms", conn -> {
+                PreparedStatement pstmt = conn.prepare(UPDATE_TERMS_SQL);
+                pstmt.setBoolean(1, accepted);
+                pstmt.setLong(2, chatId);
+
+                pstmt.executeUpdate();
+                userCache.update(chatId, user -> user.setTermsAccepted(accepted));
+                return null;
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("❌ Ошибка при обновлении согласия с условиями", e);
         }
     }
 
-    public void addGame(Long chatId) {
-        String sql = "UPDATE users SET games_played = games_played + 1, bonus_points = bonus_points + 10 WHERE chat_id = ?";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
+    /**
+     * Через {@link WriteBatcher}: фиксируется вместе с записями других обработчиков.
+     *
+     * @return true после фиксации в базе, false — если игрока нет
+     */
+    public CompletableFuture<Boolean> addGame(Long chatId) {
+        CompletableFuture<int[]> result = writeBatcher.submit("add_game", conn -> {
+            PreparedStatement pstmt = conn.prepare(ADD_GAME_SQL);
             pstmt.setLong(1, chatId);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+            int[] counters = readCounters(pstmt);
+            if (counters != null) {
+                recordGameBonus(conn, chatId, null, System.currentTimeMillis());
+            }
+            return counters;
+        }, counters -> applyCounters(chatId, counters));
+        return logFailure(result.thenApply(Objects::nonNull), "❌ Ошибка при начислении игры");
     }
 
-    public void addBonusPoints(Long chatId, int points) {
-        String sql = "UPDATE users SET bonus_points = bonus_points + ? WHERE chat_id = ?";
+    /**
+     * Начисление или списание (points &lt; 0) через журнал бонусов, который тоже фиксирует изменения пачками.
+     *
+     * @param adminId кто изменил остаток, {@code null} — сам бот
+     * @return true после фиксации в базе, false — если игрока нет
+     */
+    public CompletableFuture<Boolean> addBonusPoints(Long chatId, int points, Long adminId) {
+        return logFailure(bonusLedger.append(chatId, points,
+                adminId == null ? BonusLedger.REASON_SYSTEM : BonusLedger.REASON_ADMIN, adminId),
+                "❌ Ошибка при начислении бонусов");
+    }
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    private static <T> CompletableFuture<T> logFailure(CompletableFuture<T> future, String message) {
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                log.error(message, error instanceof CompletionException ? error.getCause() : error);
+            }
+        });
+        return future;
+    }
 
-            pstmt.setInt(1, points);
-            pstmt.setLong(2, chatId);
-            pstmt.executeUpdate();
+    /**
+     * Начисляет (или при отрицательном количестве снимает) бонусы пачкой: один пакетный UPDATE
+     * и пакетная запись в журнал в одной транзакции. Либо применяются все строки, либо ни одной.
+     *
+     * @return chat id из пакета, которых нет в таблице users (им ничего не начислено),
+     * или {@code null}, если транзакция не удалась
+     */
+    public List<Long> addBonusPointsBatch(long[] chatIds, int[] points, int count, Long adminId) {
+        List<Long> missing = new ArrayList<>();
+        boolean[] applied = new boolean[count];
+        try {
+            pool.writeTransaction("add_bonus_batch", conn -> {
+                PreparedStatement pstmt = conn.prepare(ADD_BONUS_BATCH_SQL);
+                for (int i = 0; i < count; i++) {
+                    pstmt.setInt(1, points[i]);
+                    pstmt.setLong(2, chatIds[i]);
+                    pstmt.addBatch();
+                }
+                int[] updated = pstmt.executeBatch();
+
+                long now = System.currentTimeMillis();
+                PreparedStatement ledger = conn.prepare(BonusLedger.INSERT_ENTRY_SQL);
+                for (int i = 0; i < count; i++) {
+                    if (updated[i] == 0) {
+                        missing.add(chatIds[i]);
+                    } else {
+                        applied[i] = true;
+                        BonusLedger.bindEntry(ledger, chatIds[i], points[i], BonusLedger.REASON_BULK, adminId, now);
+                        ledger.addBatch();
+                    }
+                }
+                ledger.executeBatch();
+                return null;
+            }, result -> {
+                for (int i = 0; i < count; i++) {
+                    if (applied[i]) {
+                        leaderboard.add(chatIds[i], 0, points[i]);
+                    }
+                }
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("❌ Ошибка при пакетном начислении бонусов", e);
+            return null;
+        } finally {
+            for (int i = 0; i < count; i++) {
+                userCache.invalidate(chatIds[i]);
+            }
         }
+        return missing;
     }
 
-    public boolean isAdmin(Long userId) {
-        initializeDatabase();
-        String sql = "SELECT COUNT(*) FROM admins WHERE user_id = ?";
+    /**
+     * Читает результат UPDATE ... RETURNING games_played, bonus_points; {@code null} — пользователя нет.
+     */
+    private static int[] readCounters(PreparedStatement pstmt) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? new int[]{rs.getInt(1), rs.getInt(2)} : null;
+        }
+    }
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    private void applyCounters(Long chatId, int[] counters) {
+        if (counters == null) {
+            return;
+        }
+        userCache.update(chatId, user -> {
+            user.setGamesPlayed(counters[0]);
+            user.setBonusPoints(counters[1]);
+        });
+        leaderboard.update(chatId, counters[0], counters[1]);
+    }
+
+    /**
+     * Строка журнала для бонусов за игру, в транзакции вызывающего.
+     */
+    private static void recordGameBonus(PooledConnection conn, Long chatId, Long adminId, long now) throws SQLException {
+        PreparedStatement ledger = conn.prepare(BonusLedger.INSERT_ENTRY_SQL);
+        BonusLedger.bindEntry(ledger, chatId, GAME_BONUS_POINTS, BonusLedger.REASON_GAME, adminId, now);
+        ledger.executeUpdate();
+    }
 
-            pstmt.setLong(1, userId);
-            ResultSet rs = pstmt.executeQuery();
+    public boolean isAdmin(Long userId) {
+        try {
+            return pool.read("is_admin", conn -> {
+                PreparedStatement pstmt = conn.prepare(IS_ADMIN_SQL);
+                pstmt.setLong(1, userId);
 
-            return rs.next() && rs.getInt(1) > 0;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() && rs.getInt(1) > 0;
+                }
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при проверке администратора: " + e.getMessage());
-            e.printStackTrace();
+            log.error("❌ Ошибка при проверке администратора", e);
         }
         return false;
     }
 
     public List<Admin> getAllAdmins() {
-        initializeDatabase();
         List<Admin> admins = new ArrayList<>();
-        String sql = "SELECT * FROM admins";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                admins.add(new Admin(
-                        rs.getLong("user_id"),
-                        rs.getString("username"),
-                        rs.getLong("added_by"),
-                        LocalDateTime.parse(rs.getString("added_date"))
-                ));
-            }
+
+        try {
+            pool.read("select_admins", conn -> {
+                try (ResultSet rs = conn.prepare(SELECT_ADMINS_SQL).executeQuery()) {
+                    while (rs.next()) {
+                        admins.add(new Admin(
+                                rs.getLong(1),
+                                rs.getString(2),
+                                rs.getLong(3),
+                                Timestamps.fromMillis(rs.getLong(4))
+                        ));
+                    }
+                }
+                return admins;
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при получении администраторов: " + e.getMessage());
-            e.printStackTrace();
+            log.error("❌ Ошибка при получении администраторов", e);
         }
         return admins;
     }
 
     public void addAdmin(Long userId, String username, Long addedBy) {
-        initializeDatabase();
-        String sql = "INSERT OR REPLACE INTO admins (user_id, username, added_by, added_date) VALUES (?, ?, ?, ?)";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setLong(1, userId);
-            pstmt.setString(2, username);
-            pstmt.setLong(3, addedBy);
-            pstmt.setString(4, LocalDateTime.now().toString());
-
-            pstmt.executeUpdate();
+        try {
+            pool.write("save_admin", conn -> {
+                PreparedStatement pstmt = conn.prepare(SAVE_ADMIN_SQL);
+                pstmt.setLong(1, userId);
+                pstmt.setString(2, username);
+                pstmt.setLong(3, addedBy);
+                pstmt.setLong(4, System.currentTimeMillis());
+
+                return pstmt.executeUpdate();
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при добавлении администратора: " + e.getMessage());
-            e.printStackTrace();
+            log.error("❌ Ошибка при добавлении администратора", e);
         }
     }
 
     public void removeAdmin(Long userId) {
-        initializeDatabase();
-        String sql = "DELETE FROM admins WHERE user_id = ?";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setLong(1, userId);
-            pstmt.executeUpdate();
+        try {
+            pool.write("delete_admin", conn -> {
+                PreparedStatement pstmt = conn.prepare(DELETE_ADMIN_SQL);
+                pstmt.setLong(1, userId);
+                return pstmt.executeUpdate();
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при удалении администратора: " + e.getMessage());
-            e.printStackTrace();
+            log.error("❌ Ошибка при удалении администратора", e);
         }
     }
 
     public Long addPendingGame(Long userChatId, String username) {
-        initializeDatabase();
-        String sql = "INSERT INTO pending_games (user_chat_id, username, request_date, status) VALUES (?, ?, ?, ?)";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            pstmt.setLong(1, userChatId);
-            pstmt.setString(2, username);
-            pstmt.setString(3, LocalDateTime.now().toString());
-            pstmt.setString(4, "PENDING");
-
-            pstmt.executeUpdate();
-
-            ResultSet rs = pstmt.getGeneratedKeys();
-            if (rs.next()) {
-                return rs.getLong(1);
-            }
+        try {
+            return pool.write("insert_pending_game", conn -> {
+                PreparedStatement pstmt = conn.prepareWithKeys(INSERT_PENDING_GAME_SQL);
+                pstmt.setLong(1, userChatId);
+                pstmt.setString(2, username);
+                pstmt.setLong(3, System.currentTimeMillis());
+                pstmt.setString(4, "PENDING");
+
+                pstmt.executeUpdate();
+
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        return rs.getLong(1);
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при добавлении pending game: " + e.getMessage());
-            e.printStackTrace();
+            log.error("❌ Ошибка при добавлении pending game", e);
         }
         return null;
     }
 
     public void updatePendingGameStatus(Long requestId, String status, Long processedBy) {
-        initializeDatabase();
-        String sql = "UPDATE pending_games SET status = ?, processed_by = ?, processed_date = ? WHERE id = ?";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, status);
-            pstmt.setLong(2, processedBy);
-            pstmt.setString(3, LocalDateTime.now().toString());
-            pstmt.setLong(4, requestId);
-
-            pstmt.executeUpdate();
+        try {
+            pool.write("update_pending_status", conn -> {
+                PreparedStatement pstmt = conn.prepare(UPDATE_PENDING_STATUS_SQL);
+                pstmt.setString(1, status);
+                pstmt.setLong(2, processedBy);
+                pstmt.setLong(3, System.currentTimeMillis());
+                pstmt.setLong(4, requestId);
+
+                return pstmt.executeUpdate();
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при обновлении статуса игры: " + e.getMessage());
-            e.printStackTrace();
+            log.error("❌ Ошибка при обновлении статуса игры", e);
         }
     }
 
     public PendingGame getPendingGame(Long requestId) {
-        initializeDatabase();
-        String sql = "SELECT * FROM pending_games WHERE id = ?";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setLong(1, requestId);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                PendingGame game = new PendingGame();
-                game.setId(rs.getLong("id"));
-                game.setUserChatId(rs.getLong("user_chat_id"));
-                game.setUsername(rs.getString("username"));
-                game.setRequestDate(LocalDateTime.parse(rs.getString("request_date")));
-                game.setStatus(rs.getString("status"));
-                game.setProcessedBy(rs.getLong("processed_by"));
-                if (rs.getString("processed_date") != null) {
-                    game.setProcessedDate(LocalDateTime.parse(rs.getString("processed_date")));
+        try {
+            return pool.read("select_pending_game", conn -> {
+                PreparedStatement pstmt = conn.prepare(SELECT_PENDING_GAME_SQL);
+                pstmt.setLong(1, requestId);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        PendingGame game = new PendingGame();
+                        game.setId(rs.getLong(1));
+                        game.setUserChatId(rs.getLong(2));
+                        game.setUsername(rs.getString(3));
+                        game.setRequestDate(Timestamps.fromMillis(rs.getLong(4)));
+                        game.setStatus(rs.getString(5));
+                        game.setProcessedBy(rs.getLong(6));
+                        long processedAt = rs.getLong(7);
+                        if (!rs.wasNull()) {
+                            game.setProcessedDate(Timestamps.fromMillis(processedAt));
+                        }
+                        return game;
+                    }
                 }
-                return game;
-            }
+                return null;
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при получении pending game: " + e.getMessage());
-            e.printStackTrace();
+            log.error("❌ Ошибка при получении pending game", e);
         }
         return null;
     }
 
     public List<Long> getAllAdminIds() {
-        initializeDatabase();
-        List<Long> adminIds = new ArrayList<>();
-        String sql = "SELECT user_id FROM admins";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                adminIds.add(rs.getLong("user_id"));
-            }
+        try {
+            return pool.read("select_admin_ids", conn -> {
+                List<Long> adminIds = new ArrayList<>();
+                try (ResultSet rs = conn.prepare(SELECT_ADMIN_IDS_SQL).executeQuery()) {
+                    while (rs.next()) {
+                        adminIds.add(rs.getLong(1));
+                    }
+                }
+                return adminIds;
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при получении ID администраторов: " + e.getMessage());
-            e.printStackTrace();
+            throw new IllegalStateException("Не удалось прочитать ID администраторов", e);
         }
-        return adminIds;
     }
 
     public List<String> getAdminList() {
-        initializeDatabase();
         List<String> admins = new ArrayList<>();
-        String sql = "SELECT user_id, username FROM admins";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                admins.add(String.format("@%s (ID: %d)",
-                        rs.getString("username"),
-                        rs.getLong("user_id")));
-            }
+        try {
+            pool.read("select_admin_list", conn -> {
+                try (ResultSet rs = conn.prepare(SELECT_ADMIN_LIST_SQL).executeQuery()) {
+                    while (rs.next()) {
+                        admins.add(String.format("@%s (ID: %d)",
+                                rs.getString(2),
+                                rs.getLong(1)));
+                    }
+                }
+                return admins;
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при получении списка администраторов: " + e.getMessage());
-            e.printStackTrace();
+            log.error("❌ Ошибка при получении списка администраторов", e);
         }
         return admins;
     }
 
     public Long getUserChatIdFromRequest(Long requestId) {
-        initializeDatabase();
-        String sql = "SELECT user_chat_id FROM pending_games WHERE id = ?";
+        try {
+            return pool.read("select_request_user", conn -> {
+                PreparedStatement pstmt = conn.prepare(SELECT_REQUEST_CHAT_ID_SQL);
+                pstmt.setLong(1, requestId);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getLong(1);
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            log.error("❌ Ошибка при получении user_chat_id", e);
+        }
+        return null;
+    }
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    public List<PendingGame> getPendingGamesAfter(long afterId, int limit) {
+        return readPendingPage(SELECT_PENDING_PAGE_AFTER_SQL, afterId, limit);
+    }
 
-            pstmt.setLong(1, requestId);
-            ResultSet rs = pstmt.executeQuery();
+    public List<PendingGame> getPendingGamesBefore(long beforeId, int limit) {
+        List<PendingGame> page = readPendingPage(SELECT_PENDING_PAGE_BEFORE_SQL, beforeId, limit);
+        Collections.reverse(page);
+        return page;
+    }
 
-            if (rs.next()) {
-                return rs.getLong("user_chat_id");
-            }
+    private List<PendingGame> readPendingPage(String sql, long boundary, int limit) {
+        List<PendingGame> page = new ArrayList<>(limit);
+        try {
+            pool.read("select_pending_page", conn -> {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setLong(1, boundary);
+                pstmt.setInt(2, limit);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        PendingGame game = new PendingGame();
+                        game.setId(rs.getLong(1));
+                        game.setUserChatId(rs.getLong(2));
+                        game.setUsername(rs.getString(3));
+                        game.setRequestDate(Timestamps.fromMillis(rs.getLong(4)));
+                        game.setStatus("PENDING");
+                        page.add(game);
+                    }
+                }
+                return page;
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при получении user_chat_id: " + e.getMessage());
-            e.printStackTrace();
+            log.error("❌ Ошибка при чтении очереди запросов", e);
+            page.clear();
         }
-        return null;
+        return page;
     }
 
     public boolean hasPendingRequest(Long chatId) {
-        initializeDatabase();
-        String sql = "SELECT has_pending_request FROM users WHERE chat_id = ?";
+        User cached = userCache.get(chatId);
+        if (cached != null) {
+            return cached.isHasPendingRequest();
+        }
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setLong(1, chatId);
-            ResultSet rs = pstmt.executeQuery();
+        try {
+            return pool.read("has_pending_request", conn -> {
+                PreparedStatement pstmt = conn.prepare(SELECT_HAS_PENDING_SQL);
+                pstmt.setLong(1, chatId);
 
-            if (rs.next()) {
-                return rs.getBoolean("has_pending_request");
-            }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() && rs.getBoolean(1);
+                }
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при проверке pending request: " + e.getMessage());
+            log.error("❌ Ошибка при проверке pending request", e);
         }
         return false;
     }
 
-    public void setPendingRequestStatus(Long chatId, boolean status) {
-        initializeDatabase();
-        String sql = "UPDATE users SET has_pending_request = ? WHERE chat_id = ?";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
+    /**
+     * Через {@link WriteBatcher}; кэш обновляется только после фиксации.
+     *
+     * @return true после фиксации в базе, false — если игрока нет
+     */
+    public CompletableFuture<Boolean> setPendingRequestStatus(Long chatId, boolean status) {
+        return logFailure(writeBatcher.submit("set_pending_request", conn -> {
+            PreparedStatement pstmt = conn.prepare(UPDATE_HAS_PENDING_SQL);
             pstmt.setBoolean(1, status);
             pstmt.setLong(2, chatId);
-            pstmt.executeUpdate();
+            return pstmt.executeUpdate() > 0;
+        }, updated -> userCache.update(chatId, user -> user.setHasPendingRequest(status))),
+                "❌ Ошибка при обновлении статуса запроса");
+    }
+
+    /**
+     * Подтверждает запрос и начисляет игру в одной транзакции. Переход статуса — compare-and-set
+     * по {@code status = 'PENDING'}, поэтому повторное или одновременное подтверждение
+     * не начислит игру дважды.
+     *
+     * @return chat id игрока или {@code null}, если запрос не найден или уже обработан
+     */
+    public Long approvePendingGame(Long requestId, Long processedBy) {
+        try {
+            int[] counters = new int[2];
+            Long userChatId = pool.writeTransaction("approve_pending_game", conn -> {
+                Long chatId = transitionPendingGame(conn, APPROVE_PENDING_SQL, requestId, processedBy);
+                if (chatId == null) {
+                    return null;
+                }
+
+                PreparedStatement credit = conn.prepare(CREDIT_GAME_SQL);
+                credit.setLong(1, chatId);
+                try (ResultSet rs = credit.executeQuery()) {
+                    if (rs.next()) {
+                        counters[0] = rs.getInt(1);
+                        counters[1] = rs.getInt(2);
+                        recordGameBonus(conn, chatId, processedBy, System.currentTimeMillis());
+                    }
+                }
+                return chatId;
+            }, chatId -> {
+                // После commit, но под блокировкой записи: параллельные начисления не перезапишут рейтинг старыми значениями
+                if (chatId != null && counters[0] > 0) {
+                    leaderboard.update(chatId, counters[0], counters[1]);
+                }
+            });
+
+            if (userChatId != null) {
+                userCache.update(userChatId, user -> {
+                    user.setGamesPlayed(counters[0]);
+                    user.setBonusPoints(counters[1]);
+                    user.setHasPendingRequest(false);
+                });
+            }
+            return userChatId;
+        } catch (SQLException e) {
+            log.error("❌ Ошибка при подтверждении игры", e);
+        }
+        return null;
+    }
+
+    /**
+     * Отклоняет запрос и снимает флаг ожидания у игрока в одной транзакции (compare-and-set, как при подтверждении).
+     *
+     * @return chat id игрока или {@code null}, если запрос не найден или уже обработан
+     */
+    public Long rejectPendingGame(Long requestId, Long processedBy) {
+        try {
+            Long userChatId = pool.writeTransaction("reject_pending_game", conn -> {
+                Long chatId = transitionPendingGame(conn, REJECT_PENDING_SQL, requestId, processedBy);
+                if (chatId != null) {
+                    PreparedStatement clear = conn.prepare(CLEAR_PENDING_FLAG_SQL);
+                    clear.setLong(1, chatId);
+                    clear.executeUpdate();
+                }
+                return chatId;
+            });
+
+            if (userChatId != null) {
+                userCache.update(userChatId, user -> user.setHasPendingRequest(false));
+            }
+            return userChatId;
+        } catch (SQLException e) {
+            log.error("❌ Ошибка при отклонении игры", e);
+        }
+        return null;
+    }
+
+    private static Long transitionPendingGame(PooledConnection conn, String sql, Long requestId, Long processedBy) throws SQLException {
+        PreparedStatement pstmt = conn.prepare(sql);
+        pstmt.setLong(1, processedBy);
+        pstmt.setLong(2, System.currentTimeMillis());
+        pstmt.setLong(3, requestId);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : null;
+        }
+    }
+
+    /**
+     * Подтверждает запросы одной транзакцией: статусы и счётчики пользователей обновляются
+     * пакетными UPDATE. {@code requestIds == null} — подтвердить все ожидающие запросы.
+     * Уже обработанные и несуществующие запросы пропускаются. Запрос игрока, которого нет в users,
+     * закрывается, но игра не начисляется и в результат он не попадает.
+     *
+     * @return подтверждённые и засчитанные запросы (id и user_chat_id)
+     */
+    public List<PendingGame> approvePendingGames(List<Long> requestIds, Long processedBy) {
+        List<PendingGame> approved = new ArrayList<>();
+        try {
+            pool.writeTransaction("approve_pending_games", conn -> {
+                List<PendingGame> candidates = new ArrayList<>();
+                if (requestIds == null) {
+                    try (ResultSet rs = conn.prepare(SELECT_ALL_PENDING_SQL).executeQuery()) {
+                        while (rs.next()) {
+                            candidates.add(approvedGame(rs.getLong(1), rs.getLong(2), processedBy));
+                        }
+                    }
+                } else {
+                    PreparedStatement select = conn.prepare(SELECT_PENDING_CHAT_ID_SQL);
+                    // Повтор ID в списке не должен начислить игру дважды
+                    for (Long requestId : new LinkedHashSet<>(requestIds)) {
+                        select.setLong(1, requestId);
+                        try (ResultSet rs = select.executeQuery()) {
+                            if (rs.next()) {
+                                candidates.add(approvedGame(requestId, rs.getLong(1), processedBy));
+                            }
+                        }
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    return null;
+                }
+
+                long now = System.currentTimeMillis();
+                PreparedStatement approve = conn.prepare(APPROVE_PENDING_BATCH_SQL);
+                for (PendingGame game : candidates) {
+                    approve.setLong(1, processedBy);
+                    approve.setLong(2, now);
+                    approve.setLong(3, game.getId());
+                    approve.addBatch();
+                }
+                int[] updated = approve.executeBatch();
+
+                List<PendingGame> transitioned = new ArrayList<>();
+                PreparedStatement credit = conn.prepare(CREDIT_GAME_BATCH_SQL);
+                for (int i = 0; i < candidates.size(); i++) {
+                    if (updated[i] == 1) {
+                        transitioned.add(candidates.get(i));
+                        credit.setLong(1, candidates.get(i).getUserChatId());
+                        credit.addBatch();
+                    }
+                }
+                if (transitioned.isEmpty()) {
+                    return null;
+                }
+                int[] credited = credit.executeBatch();
+
+                // Журнал и рейтинг — только для тех, кому игра действительно начислена: иначе сумма журнала разойдётся с users
+                PreparedStatement ledger = conn.prepare(BonusLedger.INSERT_ENTRY_SQL);
+                for (int i = 0; i < transitioned.size(); i++) {
+                    PendingGame game = transitioned.get(i);
+                    if (credited[i] == 0) {
+                        log.warn("⚠️ Запрос {}: игрока {} нет в базе, игра не начислена", game.getId(), game.getUserChatId());
+                        continue;
+                    }
+                    approved.add(game);
+                    BonusLedger.bindEntry(ledger, game.getUserChatId(), GAME_BONUS_POINTS, BonusLedger.REASON_GAME, processedBy, now);
+                    ledger.addBatch();
+                }
+                if (!approved.isEmpty()) {
+                    ledger.executeBatch();
+                }
+                return null;
+            }, result -> {
+                for (PendingGame game : approved) {
+                    leaderboard.add(game.getUserChatId(), 1, GAME_BONUS_POINTS);
+                }
+            });
+        } catch (SQLException e) {
+            log.error("❌ Ошибка при пакетном подтверждении игр", e);
+            return new ArrayList<>();
+        } finally {
+            for (PendingGame game : approved) {
+                userCache.invalidate(game.getUserChatId());
+            }
+        }
+        return approved;
+    }
+
+    public List<PendingGame> expirePendingGames(long requestedBefore, int limit) {
+        List<PendingGame> expired = new ArrayList<>();
+        try {
+            pool.writeTransaction("expire_pending_games", conn -> {
+                PreparedStatement expire = conn.prepare(EXPIRE_PENDING_SQL);
+                expire.setLong(1, System.currentTimeMillis());
+                expire.setLong(2, requestedBefore);
+                expire.setInt(3, limit);
+                try (ResultSet rs = expire.executeQuery()) {
+                    while (rs.next()) {
+                        PendingGame game = new PendingGame();
+                        game.setId(rs.getLong(1));
+                        game.setUserChatId(rs.getLong(2));
+                        game.setStatus("EXPIRED");
+                        expired.add(game);
+                    }
+                }
+                if (expired.isEmpty()) {
+                    return null;
+                }
 
+                PreparedStatement clear = conn.prepare(CLEAR_PENDING_FLAG_SQL);
+                for (PendingGame game : expired) {
+                    clear.setLong(1, game.getUserChatId());
+                    clear.addBatch();
+                }
+                clear.executeBatch();
+                return null;
+            }, result -> {
+                for (PendingGame game : expired) {
+                    userCache.invalidate(game.getUserChatId());
+                }
+            });
         } catch (SQLException e) {
-            System.err.println("❌ Ошибка при обновлении статуса запроса: " + e.getMessage());
+            log.error("❌ Ошибка при истечении ожидающих запросов", e);
+            return new ArrayList<>();
         }
+        return expired;
+    }
+
+    /**
+     * Копирование и удаление выбирают одни и те же строки: тот же порядок и лимит внутри одной транзакции.
+     */
+    public int archiveProcessedGames(int limit) {
+        try {
+            return pool.writeTransaction("archive_processed_games", conn -> {
+                PreparedStatement archive = conn.prepare(ARCHIVE_PROCESSED_SQL);
+                archive.setInt(1, limit);
+                if (archive.executeUpdate() == 0) {
+                    return 0;
+                }
+
+                PreparedStatement delete = conn.prepare(DELETE_ARCHIVED_SQL);
+                delete.setInt(1, limit);
+                return delete.executeUpdate();
+            });
+        } catch (SQLException e) {
+            log.error("❌ Ошибка при переносе запросов в архив", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Дописывает очереди групповой записи и журнала бонусов. Пул соединений закрывает владелец, {@link org.altmir.Bootstrap}.
+     */
+    @Override
+    public void close() {
+        writeBatcher.close();
+        bonusLedger.close();
+    }
+
+    private static PendingGame approvedGame(Long requestId, Long userChatId, Long processedBy) {
+        PendingGame game = new PendingGame();
+        game.setId(requestId);
+        game.setUserChatId(userChatId);
+        game.setStatus("APPROVED");
+        game.setProcessedBy(processedBy);
+        return game;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+package org.altmir.db;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Рейтинг игроков по числу игр и по бонусам. Держится в памяти, {@link DatabaseManager}
+ * обновляет его после каждого изменения счётчиков, при запуске он собирается из таблицы users.
+ * Топ и место игрока считаются за O(log n) без ORDER BY по всей таблице.
+ */
+public class Leaderboard {
+    public enum Metric {
+        GAMES, BONUS
+    }
+
+    private final Map<Long, int[]> counters = new HashMap<>();
+    private final RankTree byGames = new RankTree();
+    private final RankTree byBonus = new RankTree();
+
+    /**
+     * Записывает новые значения счётчиков игрока (вставляет, если его ещё нет).
+     */
+    public synchronized void update(long chatId, int gamesPlayed, int bonusPoints) {
+        int[] current = counters.get(chatId);
+        if (current == null) {
+            counters.put(chatId, new int[]{gamesPlayed, bonusPoints});
+            byGames.insert(chatId, gamesPlayed);
+            byBonus.insert(chatId, bonusPoints);
+            return;
+        }
+        if (current[0] != gamesPlayed) {
+            byGames.remove(chatId, current[0]);
+            byGames.insert(chatId, gamesPlayed);
+            current[0] = gamesPlayed;
+        }
+        if (current[1] != bonusPoints) {
+            byBonus.remove(chatId, current[1]);
+            byBonus.insert(chatId, bonusPoints);
+            current[1] = bonusPoints;
+        }
+    }
+
+    /**
+     * Прибавляет к счётчикам игрока, которого рейтинг уже знает, — для пакетных UPDATE без RETURNING.
+     */
+    public synchronized void add(long chatId, int games, int bonus) {
+        int[] current = counters.get(chatId);
+        if (current != null) {
+            update(chatId, current[0] + games, current[1] + bonus);
+        }
+    }
+
+    /**
+     * Место игрока (игроки с равными очками делят место) или 0, если его нет в рейтинге.
+     */
+    public synchronized int rank(Metric metric, long chatId) {
+        int[] current = counters.get(chatId);
+        if (current == null) {
+            return 0;
+        }
+        return metric == Metric.GAMES
+                ? byGames.countAbove(current[0]) + 1
+                : byBonus.countAbove(current[1]) + 1;
+    }
+
+    public synchronized List<Entry> top(Metric metric, int limit) {
+        List<Entry> top = new ArrayList<>(limit);
+        tree(metric).forEachTop(limit, (chatId, value) -> {
+            Entry previous = top.isEmpty() ? null : top.get(top.size() - 1);
+            int rank = previous != null && previous.getValue() == value ? previous.getRank() : top.size() + 1;
+            top.add(new Entry(chatId, value, rank));
+        });
+        return top;
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    synchronized void clear() {
+        counters.clear();
+        byGames.clear();
+        byBonus.clear();
+    }
+
+    private RankTree tree(Metric metric) {
+        return metric == Metric.GAMES ? byGames : byBonus;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final long chatId;
+        private final int value;
+        private final int rank;
+    }
+}
@@ -1,5 +1,6 @@
 package org.altmir.db;
 
+import lombok.extern.slf4j.Slf4j;
 import liquibase.Liquibase;
 import liquibase.database.Database;
 import liquibase.database.DatabaseFactory;
@@ -7,11 +8,23 @@ import liquibase.database.jvm.JdbcConnection;
 import liquibase.resource.ClassLoaderResourceAccessor;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.util.HashSet;
+import java.util.Set;
 
+@Slf4j
 public class LiquibaseMigration {
+    private static final Set<String> migratedUrls = new HashSet<>();
 
-    public static void runMigrations() {
-        String url = "jdbc:sqlite:paintball_bot.db";
+    /**
+     * Применяет changelog к базе не более одного раза за время жизни процесса.
+     *
+     * @throws IllegalStateException если миграции не применились: работать на старой или наполовину
+     *                               обновлённой схеме нельзя, запуск должен прерваться
+     */
+    public static synchronized void runMigrations(String url) {
+        if (migratedUrls.contains(url)) {
+            return;
+        }
 
         try (Connection connection = DriverManager.getConnection(url)) {
             Database database = DatabaseFactory.getInstance()
@@ -24,11 +37,11 @@ public class LiquibaseMigration {
             );
 
             liquibase.update();
-            System.out.println("✅Миграции успешно применены");
+            migratedUrls.add(url);
+            log.info("✅ Миграции успешно применены");
 
         } catch (Exception e) {
-            System.err.println("❌Ошибка при применении миграций: " + e.getMessage());
-            e.printStackTrace();
+            throw new IllegalStateException("Не удалось применить миграции к " + url, e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package org.altmir.db;
+
+import org.altmir.dao.PendingGame;
+
+import java.util.List;
+
+/**
+ * Запросы игроков на засчитывание игры.
+ */
+public interface PendingGameRepository {
+    /**
+     * @return id нового запроса или {@code null} при ошибке
+     */
+    Long addPendingGame(Long userChatId, String username);
+
+    void updatePendingGameStatus(Long requestId, String status, Long processedBy);
+
+    PendingGame getPendingGame(Long requestId);
+
+    Long getUserChatIdFromRequest(Long requestId);
+
+    /**
+     * Страница очереди по ключу: до limit ожидающих запросов с id больше afterId, по возрастанию id.
+     */
+    List<PendingGame> getPendingGamesAfter(long afterId, int limit);
+
+    /**
+     * До limit ожидающих запросов, ближайших к beforeId снизу, по возрастанию id.
+     */
+    List<PendingGame> getPendingGamesBefore(long beforeId, int limit);
+
+    /**
+     * Подтверждает запрос и начисляет игру. Переход из PENDING выполняется один раз,
+     * повторное или одновременное подтверждение ничего не начислит.
+     *
+     * @return chat id игрока или {@code null}, если запрос не найден или уже обработан
+     */
+    Long approvePendingGame(Long requestId, Long processedBy);
+
+    /**
+     * Отклоняет запрос и снимает флаг ожидания у игрока.
+     *
+     * @return chat id игрока или {@code null}, если запрос не найден или уже обработан
+     */
+    Long rejectPendingGame(Long requestId, Long processedBy);
+
+    /**
+     * Подтверждает запросы пачкой. {@code requestIds == null} — подтвердить все ожидающие.
+     * Уже обработанные и несуществующие запросы пропускаются.
+     *
+     * @return подтверждённые запросы (id и user_chat_id)
+     */
+    List<PendingGame> approvePendingGames(List<Long> requestIds, Long processedBy);
+
+    /**
+     * Переводит в EXPIRED до limit ожидающих запросов, отправленных раньше requestedBefore (epoch millis),
+     * и снимает флаг ожидания у их игроков — одной транзакцией.
+     *
+     * @return истёкшие запросы (id и user_chat_id)
+     */
+    List<PendingGame> expirePendingGames(long requestedBefore, int limit);
+
+    /**
+     * Переносит до limit обработанных запросов, начиная с самых старых, в архив.
+     *
+     * @return сколько запросов перенесено
+     */
+    int archiveProcessedGames(int limit);
+}
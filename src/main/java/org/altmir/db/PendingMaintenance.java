@@ -0,0 +1,127 @@
+package org.altmir.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.altmir.dao.PendingGame;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Обслуживание очереди запросов на игру: ожидающие дольше срока истекают (у игрока снимается флаг ожидания),
+ * обработанные переносятся в архив. Работа идёт кусками по chunk запросов, каждый кусок — отдельная короткая
+ * транзакция, поэтому между кусками живые записи получают блокировку записи (она честная).
+ */
+@Slf4j
+public class PendingMaintenance implements AutoCloseable {
+    private final PendingGameRepository games;
+    private final long expiryMillis;
+    private final int chunk;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> tasks = new CopyOnWriteArrayList<>();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong archived = new AtomicLong();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pending-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = true;
+
+    public PendingMaintenance(PendingGameRepository games, long expiryMillis, int chunk, long intervalMillis) {
+        this.games = games;
+        this.expiryMillis = expiryMillis;
+        this.chunk = chunk;
+        scheduler.scheduleWithFixedDelay(this::runQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            log.error("❌ Ошибка обслуживания очереди запросов", e);
+        }
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("❌ Ошибка задачи обслуживания", e);
+            }
+        }
+    }
+
+    /**
+     * Один проход: сначала истечение, затем архив, чтобы истёкшие ушли в архив в том же проходе.
+     */
+    public void run() {
+        long requestedBefore = System.currentTimeMillis() - expiryMillis;
+        int expiredNow = 0;
+        List<PendingGame> batch;
+        do {
+            batch = games.expirePendingGames(requestedBefore, chunk);
+            expiredNow += batch.size();
+            if (!batch.isEmpty()) {
+                expired.addAndGet(batch.size());
+                for (Listener listener : listeners) {
+                    listener.onExpired(batch);
+                }
+            }
+        } while (running && batch.size() == chunk);
+
+        int archivedNow = 0;
+        int moved;
+        do {
+            moved = games.archiveProcessedGames(chunk);
+            archivedNow += moved;
+        } while (running && moved == chunk);
+        archived.addAndGet(archivedNow);
+
+        if (expiredNow > 0 || archivedNow > 0) {
+            log.info("🧹 Очередь запросов: истекло {}, перенесено в архив {}", expiredNow, archivedNow);
+        }
+    }
+
+    /**
+     * Другая периодическая уборка на том же потоке и с тем же интервалом; выполняется после каждого прохода.
+     */
+    public void addTask(Runnable task) {
+        tasks.add(task);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+    public long getArchivedCount() {
+        return archived.get();
+    }
+
+    /**
+     * Прерывает проход между кусками и останавливает расписание; текущий кусок дописывается.
+     */
+    @Override
+    public void close() {
+        running = false;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Вызывается на потоке обслуживания после фиксации куска.
+         */
+        void onExpired(List<PendingGame> games);
+    }
+}
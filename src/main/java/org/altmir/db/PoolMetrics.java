@@ -0,0 +1,74 @@
+package org.altmir.db;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчики {@link ConnectionPool}: сколько раз брали соединения и сколько ждали.
+ */
+public class PoolMetrics {
+    private final AtomicLong readerCheckouts = new AtomicLong();
+    private final AtomicLong writerCheckouts = new AtomicLong();
+    private final AtomicLong readerWaitNanos = new AtomicLong();
+    private final AtomicLong writerWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    void recordReaderCheckout(long waitNanos) {
+        readerCheckouts.incrementAndGet();
+        readerWaitNanos.addAndGet(waitNanos);
+        updateMax(waitNanos);
+    }
+
+    void recordWriterCheckout(long waitNanos) {
+        writerCheckouts.incrementAndGet();
+        writerWaitNanos.addAndGet(waitNanos);
+        updateMax(waitNanos);
+    }
+
+    void recordTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    private void updateMax(long waitNanos) {
+        long current;
+        while (waitNanos > (current = maxWaitNanos.get())) {
+            if (maxWaitNanos.compareAndSet(current, waitNanos)) {
+                return;
+            }
+        }
+    }
+
+    public long getReaderCheckouts() {
+        return readerCheckouts.get();
+    }
+
+    public long getWriterCheckouts() {
+        return writerCheckouts.get();
+    }
+
+    public long getReaderWaitNanos() {
+        return readerWaitNanos.get();
+    }
+
+    public long getWriterWaitNanos() {
+        return writerWaitNanos.get();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "readers: %d checkouts, %d ms wait; writer: %d checkouts, %d ms wait; max wait %d ms; timeouts %d",
+                getReaderCheckouts(), TimeUnit.NANOSECONDS.toMillis(getReaderWaitNanos()),
+                getWriterCheckouts(), TimeUnit.NANOSECONDS.toMillis(getWriterWaitNanos()),
+                TimeUnit.NANOSECONDS.toMillis(getMaxWaitNanos()), getTimeouts());
+    }
+}
@@ -0,0 +1,61 @@
+package org.altmir.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Долгоживущее соединение из {@link ConnectionPool} с кэшем подготовленных запросов.
+ * Не потокобезопасно: в каждый момент им владеет только один поток, взявший его из пула.
+ */
+public class PooledConnection implements AutoCloseable {
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private final Map<String, PreparedStatement> keyStatements = new HashMap<>();
+
+    PooledConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement pstmt = statements.get(sql);
+        if (pstmt == null) {
+            pstmt = connection.prepareStatement(sql);
+            statements.put(sql, pstmt);
+        }
+        return pstmt;
+    }
+
+    public PreparedStatement prepareWithKeys(String sql) throws SQLException {
+        PreparedStatement pstmt = keyStatements.get(sql);
+        if (pstmt == null) {
+            pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            keyStatements.put(sql, pstmt);
+        }
+        return pstmt;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public int getCachedStatementCount() {
+        return statements.size() + keyStatements.size();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (PreparedStatement pstmt : statements.values()) {
+            pstmt.close();
+        }
+        for (PreparedStatement pstmt : keyStatements.values()) {
+            pstmt.close();
+        }
+        statements.clear();
+        keyStatements.clear();
+        connection.close();
+    }
+}
@@ -0,0 +1,176 @@
+package org.altmir.db;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+
+/**
+ * Декартово дерево (treap) с размерами поддеревьев: вставка, удаление, место по очкам
+ * и первые n записей за O(log n). Порядок — очки по убыванию, при равенстве chat id по возрастанию.
+ * Не потокобезопасно, синхронизацию делает {@link Leaderboard}.
+ */
+class RankTree {
+    private final SplittableRandom random = new SplittableRandom();
+    private Node root;
+
+    void insert(long id, int value) {
+        root = insert(root, new Node(id, value, random.nextInt()));
+    }
+
+    void remove(long id, int value) {
+        root = remove(root, id, value);
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    void clear() {
+        root = null;
+    }
+
+    /**
+     * Сколько записей с очками строго больше value: место игрока с такими очками — это число плюс один.
+     */
+    int countAbove(int value) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.value > value) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Первые limit записей по порядку; visitor получает chat id и очки.
+     */
+    void forEachTop(int limit, EntryVisitor visitor) {
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        int visited = 0;
+        while (visited < limit && (node != null || !stack.isEmpty())) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            visitor.visit(node.id, node.value);
+            visited++;
+            node = node.right;
+        }
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.priority > node.priority) {
+            split(node, added);
+            update(added);
+            return added;
+        }
+        if (compare(added.id, added.value, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * Раскладывает поддерево node по ключу pivot: меньшие ключи уходят в pivot.left, остальные в pivot.right.
+     */
+    private static void split(Node node, Node pivot) {
+        if (node == null) {
+            pivot.left = null;
+            pivot.right = null;
+            return;
+        }
+        if (compare(pivot.id, pivot.value, node) > 0) {
+            split(node.right, pivot);
+            node.right = pivot.left;
+            update(node);
+            pivot.left = node;
+        } else {
+            split(node.left, pivot);
+            node.left = pivot.right;
+            update(node);
+            pivot.right = node;
+        }
+    }
+
+    private static Node remove(Node node, long id, int value) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(id, value, node);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = remove(node.left, id, value);
+        } else {
+            node.right = remove(node.right, id, value);
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static int compare(long id, int value, Node node) {
+        if (value != node.value) {
+            return value > node.value ? -1 : 1;
+        }
+        return Long.compare(id, node.id);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    @FunctionalInterface
+    interface EntryVisitor {
+        void visit(long id, int value);
+    }
+
+    private static final class Node {
+        private final long id;
+        private final int value;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(long id, int value, int priority) {
+            this.id = id;
+            this.value = value;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.altmir.db;
+
+import org.altmir.metrics.Counter;
+import org.altmir.metrics.MetricsRegistry;
+import org.altmir.metrics.Timer;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Таймеры и счётчики ошибок по именованным операциям с базой: {@code kontrabot_sql_seconds{statement=...}}.
+ * Имя передаёт вызывающий ({@code select_user}, {@code approve_pending_games}, ...), время считается
+ * от получения соединения до конца работы, ожидание соединения сюда не входит — оно в {@link PoolMetrics}.
+ */
+public class StatementMetrics {
+    private final MetricsRegistry registry;
+    private final Map<String, Probe> probes = new ConcurrentHashMap<>();
+
+    public StatementMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    <T> T time(String statement, PooledConnection conn, ConnectionPool.SqlWork<T> work) throws SQLException {
+        Probe probe = probes.computeIfAbsent(statement, this::probe);
+        long start = System.nanoTime();
+        try {
+            return work.execute(conn);
+        } catch (SQLException | RuntimeException e) {
+            probe.errors.increment();
+            throw e;
+        } finally {
+            probe.timer.recordSince(start);
+        }
+    }
+
+    private Probe probe(String statement) {
+        return new Probe(registry.timer("kontrabot_sql_seconds", "statement", statement),
+                registry.counter("kontrabot_sql_errors_total", "statement", statement));
+    }
+
+    private static final class Probe {
+        private final Timer timer;
+        private final Counter errors;
+
+        private Probe(Timer timer, Counter errors) {
+            this.timer = timer;
+            this.errors = errors;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.altmir.db;
+
+/**
+ * Хранилище бота целиком. Реализация выбирается настройкой {@code storage.engine}:
+ * {@link DatabaseManager} поверх SQLite или {@link org.altmir.db.memory.MemoryStorage}.
+ */
+public interface Storage extends UserRepository, AdminRepository, PendingGameRepository, AutoCloseable {
+    /**
+     * Дописывает незафиксированные изменения на диск. Вызывается при остановке процесса.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,27 @@
+package org.altmir.db;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Даты в базе — epoch millis в колонках BIGINT; в объектах — LocalDateTime в часовом поясе сервера,
+ * как и раньше, когда в базу писался LocalDateTime.toString().
+ * <p>
+ * Миграция 007 переводила старый текст в millis поясом ОС (SQLite, julianday 'utc'), а здесь используется
+ * пояс JVM. Они должны совпадать: не запускайте бота с -Duser.timezone, отличным от TZ системы.
+ */
+public final class Timestamps {
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private Timestamps() {
+    }
+
+    public static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    public static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+    }
+}
@@ -0,0 +1,114 @@
+package org.altmir.db;
+
+import org.altmir.dao.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Ограниченный LRU-кэш пользователей по chat id перед таблицей users.
+ * {@link DatabaseManager} обновляет его сразу после каждой записи в базу (write-through),
+ * наружу отдаются только копии, чтобы вызывающий код не менял закэшированный объект.
+ */
+public class UserCache {
+    private final int maxSize;
+    private final Map<Long, User> users;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long writeStamp;
+
+    public UserCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.users = new LinkedHashMap<Long, User>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, User> eldest) {
+                if (size() > UserCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized User get(Long chatId) {
+        User user = users.get(chatId);
+        if (user == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return copyOf(user);
+    }
+
+    /**
+     * Метка для {@link #putLoaded}: загруженная из базы строка попадёт в кэш,
+     * только если с момента получения метки не было ни одной записи.
+     */
+    public synchronized long stamp() {
+        return writeStamp;
+    }
+
+    public synchronized void putLoaded(User user, long stamp) {
+        if (stamp == writeStamp) {
+            users.put(user.getChatId(), copyOf(user));
+        }
+    }
+
+    public synchronized void put(User user) {
+        writeStamp++;
+        users.put(user.getChatId(), copyOf(user));
+    }
+
+    /**
+     * Применяет изменение к закэшированной записи, если она есть.
+     */
+    public synchronized void update(Long chatId, Consumer<User> change) {
+        writeStamp++;
+        User user = users.get(chatId);
+        if (user != null) {
+            change.accept(user);
+        }
+    }
+
+    public synchronized void invalidate(Long chatId) {
+        writeStamp++;
+        users.remove(chatId);
+    }
+
+    public synchronized int size() {
+        return users.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private static User copyOf(User user) {
+        return new User(
+                user.getChatId(),
+                user.getUsername(),
+                user.getGamesPlayed(),
+                user.getBonusPoints(),
+                user.getRegistrationDate(),
+                user.isTermsAccepted(),
+                user.isHasPendingRequest()
+        );
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size=%d, hits=%d, misses=%d, evictions=%d", size(), getHits(), getMisses(), getEvictions());
+    }
+}
@@ -0,0 +1,56 @@
+package org.altmir.db;
+
+import org.altmir.dao.User;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Игроки: профиль, счётчики игр и бонусов, флаг ожидающего запроса.
+ */
+public interface UserRepository {
+    /**
+     * @return игрок или {@code null}, если его нет
+     * @throws IllegalStateException если прочитать не удалось: {@code null} здесь означал бы «игрока нет»,
+     *                               и вызывающий пересоздал бы его с нулевыми счётчиками
+     */
+    User getUser(Long chatId);
+
+    void saveUser(User user);
+
+    void updateUserTermsAccepted(Long chatId, boolean accepted);
+
+    /**
+     * Засчитывает игру и начисляет бонусы за неё.
+     *
+     * @return true, когда изменение сохранено на диск; false — игрока нет
+     */
+    CompletableFuture<Boolean> addGame(Long chatId);
+
+    /**
+     * Начисление или списание (points &lt; 0).
+     *
+     * @param adminId кто изменил остаток, {@code null} — сам бот
+     * @return true, когда изменение сохранено на диск; false — игрока нет
+     */
+    CompletableFuture<Boolean> addBonusPoints(Long chatId, int points, Long adminId);
+
+    /**
+     * Начисляет бонусы пачкой: либо применяются все строки, либо ни одной.
+     *
+     * @return chat id из пакета, которых нет среди игроков, или {@code null}, если пакет не применён
+     */
+    List<Long> addBonusPointsBatch(long[] chatIds, int[] points, int count, Long adminId);
+
+    boolean hasPendingRequest(Long chatId);
+
+    /**
+     * @return true, когда изменение сохранено на диск; false — игрока нет
+     */
+    CompletableFuture<Boolean> setPendingRequestStatus(Long chatId, boolean status);
+
+    /**
+     * Рейтинг, который хранилище поддерживает в актуальном состоянии.
+     */
+    Leaderboard getLeaderboard();
+}
@@ -0,0 +1,215 @@
+package org.altmir.db;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Групповая фиксация записей (write-behind): операции из разных обработчиков копятся в очереди,
+ * и поток записи выполняет их одной транзакцией. Пачка закрывается, когда набралось maxBatch операций
+ * или прошло maxDelay с момента прихода первой; при maxDelay = 0 берётся только то, что уже в очереди.
+ * <p>
+ * Каждая операция идёт в своей точке сохранения: ошибка одной откатывает только её, остальные фиксируются.
+ * Соединение записи работает с synchronous=FULL, поэтому future операции завершается после commit и fsync,
+ * а afterCommit вызывается ещё под блокировкой записи —
+ * как у {@link ConnectionPool#writeTransaction(String, ConnectionPool.SqlWork, Consumer)}.
+ */
+@Slf4j
+public class WriteBatcher implements AutoCloseable {
+    private final ConnectionPool pool;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Write<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile boolean running = true;
+
+    public WriteBatcher(ConnectionPool pool, int maxBatch, long maxDelayMillis) {
+        this.pool = pool;
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.writer = new Thread(this::run, "write-batcher");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Ставит операцию в очередь на запись.
+     *
+     * @param statement имя операции для {@code kontrabot_sql_seconds{statement=...}}; время считается по каждой операции пачки
+     * @return результат work после фиксации пачки в базе
+     */
+    public <T> CompletableFuture<T> submit(String statement, ConnectionPool.SqlWork<T> work, Consumer<T> afterCommit) {
+        Write<T> write = new Write<>(statement, work, afterCommit);
+        // Под той же блокировкой, что и close(): после остановки в очередь ничего не попадёт
+        synchronized (this) {
+            if (running) {
+                queue.add(write);
+                return write.result;
+            }
+        }
+        write.result.completeExceptionally(new IllegalStateException("Очередь записи закрыта"));
+        return write.result;
+    }
+
+    private void run() {
+        List<Write<?>> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Write<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch, System.nanoTime() + maxDelayNanos);
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                synchronized (this) {
+                    running = false;
+                }
+            }
+        }
+        failRemaining();
+    }
+
+    /**
+     * Поток записи остановлен прерыванием, не дописав очередь: ждущие не должны висеть вечно.
+     */
+    private void failRemaining() {
+        List<Write<?>> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (Write<?> write : remaining) {
+            write.result.completeExceptionally(new IllegalStateException("Очередь записи закрыта"));
+        }
+    }
+
+    private void collect(List<Write<?>> batch, long deadline) throws InterruptedException {
+        while (batch.size() < maxBatch) {
+            if (queue.drainTo(batch, maxBatch - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Write<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<Write<?>> batch) {
+        try {
+            pool.writeTransaction("write_batch", conn -> {
+                Connection connection = conn.getConnection();
+                for (Write<?> write : batch) {
+                    Savepoint savepoint = connection.setSavepoint();
+                    try {
+                        write.execute(pool.getStatementMetrics(), conn);
+                        connection.releaseSavepoint(savepoint);
+                    } catch (SQLException | RuntimeException e) {
+                        connection.rollback(savepoint);
+                        write.error = e;
+                    }
+                }
+                return null;
+            }, result -> {
+                for (Write<?> write : batch) {
+                    write.committed();
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            log.error("❌ Ошибка групповой записи, пачка из {} операций не применена", batch.size(), e);
+            for (Write<?> write : batch) {
+                write.result.completeExceptionally(e);
+            }
+            return;
+        }
+
+        batches.incrementAndGet();
+        writes.addAndGet(batch.size());
+        for (Write<?> write : batch) {
+            write.complete();
+        }
+    }
+
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Дописывает очередь и останавливает поток записи.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            running = false;
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Write<T> {
+        private final String statement;
+        private final ConnectionPool.SqlWork<T> work;
+        private final Consumer<T> afterCommit;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private Exception error;
+
+        private Write(String statement, ConnectionPool.SqlWork<T> work, Consumer<T> afterCommit) {
+            this.statement = statement;
+            this.work = work;
+            this.afterCommit = afterCommit;
+        }
+
+        private void execute(StatementMetrics metrics, PooledConnection conn) throws SQLException {
+            value = metrics.time(statement, conn, work);
+        }
+
+        private void committed() {
+            if (error != null) {
+                return;
+            }
+            try {
+                afterCommit.accept(value);
+            } catch (RuntimeException e) {
+                log.error("❌ Ошибка после фиксации записи", e);
+            }
+        }
+
+        private void complete() {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,803 @@
+package org.altmir.db.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.altmir.dao.Admin;
+import org.altmir.dao.PendingGame;
+import org.altmir.dao.User;
+import org.altmir.db.DatabaseManager;
+import org.altmir.db.Leaderboard;
+import org.altmir.db.Storage;
+import org.altmir.db.Timestamps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище целиком в памяти: игроки и запросы в {@link ConcurrentHashMap}, поэтому записи
+ * по разным игрокам не ждут друг друга, в отличие от единственного писателя SQLite.
+ * Долговечность — журнал {@link WriteAheadLog} и периодический снимок snapshot.bin в каталоге хранилища.
+ * <p>
+ * У каждой строки игрока и запроса есть версия, и при восстановлении строка из журнала применяется,
+ * только если она новее. Поэтому изменение можно писать в журнал после того, как оно применено
+ * в памяти, а изменения нескольких строк (подтверждение игры) — одной записью журнала.
+ * Администраторы меняются редко и пишутся в журнал под общей блокировкой, по порядку.
+ */
+@Slf4j
+public class MemoryStorage implements Storage {
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final String ARCHIVE = "pending-archive.bin";
+    private static final int SNAPSHOT_MAGIC = 0x4B425331;
+
+    private static final int END = 0;
+    private static final int USER = 1;
+    private static final int ADMIN = 2;
+    private static final int ADMIN_REMOVED = 3;
+    private static final int GAME = 4;
+    private static final int GAME_ARCHIVED = 5;
+
+    private static final String STATUS_PENDING = "PENDING";
+    private static final String STATUS_APPROVED = "APPROVED";
+    private static final String STATUS_REJECTED = "REJECTED";
+    private static final String STATUS_EXPIRED = "EXPIRED";
+
+    private final Path dir;
+    private final Leaderboard leaderboard;
+    private final Map<Long, Row<User>> users = new ConcurrentHashMap<>();
+    private final Map<Long, Row<PendingGame>> games = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Long> pendingIds = new ConcurrentSkipListSet<>();
+    private final Map<Long, Admin> admins = new LinkedHashMap<>();
+    private final AtomicLong nextGameId = new AtomicLong(1);
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicBoolean syncScheduled = new AtomicBoolean();
+    private final long syncMillis;
+    private final WriteAheadLog wal;
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "memory-storage");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Восстанавливает состояние из снимка и журнала в каталоге и заполняет рейтинг.
+     *
+     * @param syncMillis     через сколько после записи делать fsync журнала: за это время
+     *                       к одному fsync присоединяются записи других потоков
+     * @param snapshotMillis как часто сбрасывать снимок и удалять покрытые им сегменты журнала
+     */
+    public MemoryStorage(Path dir, Leaderboard leaderboard, long syncMillis, long snapshotMillis) throws IOException {
+        this.dir = dir;
+        this.leaderboard = leaderboard;
+        this.syncMillis = syncMillis;
+        // Отложенный fsync при закрытии не ждём: close() сам сбрасывает журнал на диск
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        Files.createDirectories(dir);
+
+        long firstSegment = loadSnapshot();
+        long lastSegment = firstSegment - 1;
+        long records = 0;
+        for (Path file : WriteAheadLog.segments(dir)) {
+            long index = WriteAheadLog.indexOf(file);
+            if (index >= firstSegment) {
+                records += WriteAheadLog.replay(file, payload -> readRows(new DataInputStream(new ByteArrayInputStream(payload))));
+                lastSegment = index;
+            }
+        }
+        for (Row<User> row : users.values()) {
+            leaderboard.update(row.value.getChatId(), row.value.getGamesPlayed(), row.value.getBonusPoints());
+        }
+        log.info("💾 Хранилище в памяти: {} игроков, {} запросов, из журнала применено записей: {}",
+                users.size(), games.size(), records);
+
+        this.wal = new WriteAheadLog(dir, lastSegment + 1);
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotMillis, snapshotMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public User getUser(Long chatId) {
+        Row<User> row = users.get(chatId);
+        return row == null ? null : copy(row.value);
+    }
+
+    public void saveUser(User user) {
+        User saved = copy(user);
+        Row<User> row = users.compute(user.getChatId(), (chatId, old) -> {
+            leaderboard.update(chatId, saved.getGamesPlayed(), saved.getBonusPoints());
+            return new Row<>(saved, old == null ? 1 : old.version + 1);
+        });
+        journal(out -> writeUser(out, row));
+    }
+
+    public void updateUserTermsAccepted(Long chatId, boolean accepted) {
+        journalUser(updateUser(chatId, user -> user.setTermsAccepted(accepted)));
+    }
+
+    public CompletableFuture<Boolean> addGame(Long chatId) {
+        return journalUser(updateUser(chatId, user -> {
+            user.setGamesPlayed(user.getGamesPlayed() + 1);
+            user.setBonusPoints(user.getBonusPoints() + DatabaseManager.GAME_BONUS_POINTS);
+        }));
+    }
+
+    public CompletableFuture<Boolean> addBonusPoints(Long chatId, int points, Long adminId) {
+        return journalUser(updateUser(chatId, user -> user.setBonusPoints(user.getBonusPoints() + points)));
+    }
+
+    /**
+     * Все изменённые строки уходят в журнал одной записью.
+     */
+    public List<Long> addBonusPointsBatch(long[] chatIds, int[] points, int count, Long adminId) {
+        List<Long> missing = new ArrayList<>();
+        List<Row<User>> changed = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int delta = points[i];
+            Row<User> row = updateUser(chatIds[i], user -> user.setBonusPoints(user.getBonusPoints() + delta));
+            if (row == null) {
+                missing.add(chatIds[i]);
+            } else {
+                changed.add(row);
+            }
+        }
+        if (!changed.isEmpty()) {
+            journal(out -> {
+                for (Row<User> row : changed) {
+                    writeUser(out, row);
+                }
+            });
+        }
+        return missing;
+    }
+
+    public boolean hasPendingRequest(Long chatId) {
+        Row<User> row = users.get(chatId);
+        return row != null && row.value.isHasPendingRequest();
+    }
+
+    public CompletableFuture<Boolean> setPendingRequestStatus(Long chatId, boolean status) {
+        return journalUser(updateUser(chatId, user -> user.setHasPendingRequest(status)));
+    }
+
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * Меняет копию игрока и подменяет строку с новой версией; рейтинг обновляется под той же блокировкой ключа.
+     *
+     * @return новая строка или {@code null}, если игрока нет
+     */
+    private Row<User> updateUser(long chatId, Consumer<User> change) {
+        return users.computeIfPresent(chatId, (id, old) -> {
+            User user = copy(old.value);
+            change.accept(user);
+            if (user.getGamesPlayed() != old.value.getGamesPlayed() || user.getBonusPoints() != old.value.getBonusPoints()) {
+                leaderboard.update(id, user.getGamesPlayed(), user.getBonusPoints());
+            }
+            return new Row<>(user, old.version + 1);
+        });
+    }
+
+    /**
+     * @return true после fsync журнала, false — игрока нет
+     */
+    private CompletableFuture<Boolean> journalUser(Row<User> row) {
+        if (row == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return journal(out -> writeUser(out, row)).thenApply(durable -> true);
+    }
+
+    public boolean isAdmin(Long userId) {
+        synchronized (admins) {
+            return admins.containsKey(userId);
+        }
+    }
+
+    public List<Admin> getAllAdmins() {
+        List<Admin> result = new ArrayList<>();
+        synchronized (admins) {
+            for (Admin admin : admins.values()) {
+                result.add(new Admin(admin.getUserId(), admin.getUsername(), admin.getAddedBy(), admin.getAddedDate()));
+            }
+        }
+        return result;
+    }
+
+    public List<Long> getAllAdminIds() {
+        synchronized (admins) {
+            return new ArrayList<>(admins.keySet());
+        }
+    }
+
+    public List<String> getAdminList() {
+        List<String> result = new ArrayList<>();
+        synchronized (admins) {
+            for (Admin admin : admins.values()) {
+                result.add(String.format("@%s (ID: %d)", admin.getUsername(), admin.getUserId()));
+            }
+        }
+        return result;
+    }
+
+    public void addAdmin(Long userId, String username, Long addedBy) {
+        Admin admin = new Admin(userId, username, addedBy, LocalDateTime.now());
+        synchronized (admins) {
+            admins.remove(userId);
+            admins.put(userId, admin);
+            journal(out -> writeAdmin(out, admin));
+        }
+    }
+
+    public void removeAdmin(Long userId) {
+        synchronized (admins) {
+            if (admins.remove(userId) != null) {
+                journal(out -> {
+                    out.writeByte(ADMIN_REMOVED);
+                    out.writeLong(userId);
+                });
+            }
+        }
+    }
+
+    public Long addPendingGame(Long userChatId, String username) {
+        long id = nextGameId.getAndIncrement();
+        PendingGame game = new PendingGame(id, userChatId, username, LocalDateTime.now(), STATUS_PENDING, null, null);
+        Row<PendingGame> row = new Row<>(game, 1);
+        pendingIds.add(id);
+        games.put(id, row);
+        journal(out -> writeGame(out, row));
+        return id;
+    }
+
+    public void updatePendingGameStatus(Long requestId, String status, Long processedBy) {
+        Row<PendingGame> row = games.computeIfPresent(requestId, (id, old) -> processed(old, status, processedBy));
+        if (row != null) {
+            journal(out -> writeGame(out, row));
+        }
+    }
+
+    public PendingGame getPendingGame(Long requestId) {
+        Row<PendingGame> row = games.get(requestId);
+        return row == null ? null : copy(row.value);
+    }
+
+    public Long getUserChatIdFromRequest(Long requestId) {
+        Row<PendingGame> row = games.get(requestId);
+        return row == null ? null : row.value.getUserChatId();
+    }
+
+    public List<PendingGame> getPendingGamesAfter(long afterId, int limit) {
+        return pendingPage(pendingIds.tailSet(afterId, false).iterator(), limit, false);
+    }
+
+    public List<PendingGame> getPendingGamesBefore(long beforeId, int limit) {
+        return pendingPage(pendingIds.headSet(beforeId, false).descendingIterator(), limit, true);
+    }
+
+    /**
+     * Идёт по индексу ожидающих id; запрос, обработанный между чтением id и строки, пропускается.
+     */
+    private List<PendingGame> pendingPage(Iterator<Long> ids, int limit, boolean descending) {
+        List<PendingGame> page = new ArrayList<>(limit);
+        while (page.size() < limit && ids.hasNext()) {
+            Row<PendingGame> row = games.get(ids.next());
+            if (row != null && STATUS_PENDING.equals(row.value.getStatus())) {
+                page.add(copy(row.value));
+            }
+        }
+        if (descending) {
+            Collections.reverse(page);
+        }
+        return page;
+    }
+
+    public Long approvePendingGame(Long requestId, Long processedBy) {
+        Row<PendingGame> game = transition(requestId, STATUS_APPROVED, processedBy);
+        if (game == null) {
+            return null;
+        }
+        Row<User> user = creditGame(game.value.getUserChatId());
+        journal(out -> {
+            writeGame(out, game);
+            if (user != null) {
+                writeUser(out, user);
+            }
+        });
+        return game.value.getUserChatId();
+    }
+
+    public Long rejectPendingGame(Long requestId, Long processedBy) {
+        Row<PendingGame> game = transition(requestId, STATUS_REJECTED, processedBy);
+        if (game == null) {
+            return null;
+        }
+        Row<User> user = updateUser(game.value.getUserChatId(), u -> u.setHasPendingRequest(false));
+        journal(out -> {
+            writeGame(out, game);
+            if (user != null) {
+                writeUser(out, user);
+            }
+        });
+        return game.value.getUserChatId();
+    }
+
+    /**
+     * Все подтверждения и начисления пачки уходят в журнал одной записью.
+     */
+    public List<PendingGame> approvePendingGames(List<Long> requestIds, Long processedBy) {
+        List<Long> ids = requestIds == null ? new ArrayList<>(pendingIds) : requestIds;
+        List<PendingGame> approved = new ArrayList<>();
+        List<Row<PendingGame>> changedGames = new ArrayList<>();
+        List<Row<User>> changedUsers = new ArrayList<>();
+        for (Long requestId : ids) {
+            Row<PendingGame> game = transition(requestId, STATUS_APPROVED, processedBy);
+            if (game != null) {
+                changedGames.add(game);
+                Row<User> user = creditGame(game.value.getUserChatId());
+                if (user != null) {
+                    changedUsers.add(user);
+                    approved.add(copy(game.value));
+                }
+            }
+        }
+        if (!changedGames.isEmpty()) {
+            journal(out -> {
+                for (Row<PendingGame> game : changedGames) {
+                    writeGame(out, game);
+                }
+                for (Row<User> user : changedUsers) {
+                    writeUser(out, user);
+                }
+            });
+        }
+        return approved;
+    }
+
+    /**
+     * Id выдаются по возрастанию времени запроса, поэтому обход pendingIds с начала
+     * останавливается на первом непросроченном.
+     */
+    public List<PendingGame> expirePendingGames(long requestedBefore, int limit) {
+        List<PendingGame> expired = new ArrayList<>();
+        List<Row<PendingGame>> changedGames = new ArrayList<>();
+        List<Row<User>> changedUsers = new ArrayList<>();
+        for (Long requestId : pendingIds) {
+            if (expired.size() == limit) {
+                break;
+            }
+            Row<PendingGame> current = games.get(requestId);
+            if (current == null) {
+                continue;
+            }
+            if (Timestamps.toMillis(current.value.getRequestDate()) >= requestedBefore) {
+                break;
+            }
+            Row<PendingGame> game = transition(requestId, STATUS_EXPIRED, null);
+            if (game != null) {
+                changedGames.add(game);
+                expired.add(copy(game.value));
+                Row<User> user = updateUser(game.value.getUserChatId(), u -> u.setHasPendingRequest(false));
+                if (user != null) {
+                    changedUsers.add(user);
+                }
+            }
+        }
+        if (!changedGames.isEmpty()) {
+            journal(out -> {
+                for (Row<PendingGame> game : changedGames) {
+                    writeGame(out, game);
+                }
+                for (Row<User> user : changedUsers) {
+                    writeUser(out, user);
+                }
+            });
+        }
+        return expired;
+    }
+
+    /**
+     * Дописывает обработанные запросы в {@value #ARCHIVE} и только после fsync убирает их из памяти
+     * и пишет в журнал. Если процесс упадёт между этими шагами, запрос будет перенесён повторно:
+     * в архиве возможны дубли id, актуальна последняя запись.
+     */
+    public synchronized int archiveProcessedGames(int limit) {
+        List<Row<PendingGame>> processed = new ArrayList<>();
+        for (Row<PendingGame> row : games.values()) {
+            if (processed.size() == limit) {
+                break;
+            }
+            if (!STATUS_PENDING.equals(row.value.getStatus())) {
+                processed.add(row);
+            }
+        }
+        if (processed.isEmpty()) {
+            return 0;
+        }
+
+        try (FileOutputStream file = new FileOutputStream(dir.resolve(ARCHIVE).toFile(), true);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            for (Row<PendingGame> row : processed) {
+                PendingGame game = row.value;
+                out.writeLong(game.getId());
+                out.writeLong(game.getUserChatId());
+                out.writeUTF(game.getStatus());
+                writeLong(out, game.getProcessedBy());
+                out.writeLong(Timestamps.toMillis(game.getRequestDate()));
+                out.writeLong(game.getProcessedDate() == null ? 0 : Timestamps.toMillis(game.getProcessedDate()));
+            }
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            writeErrors.incrementAndGet();
+            log.error("❌ Ошибка записи архива запросов", e);
+            return 0;
+        }
+
+        List<Long> archived = new ArrayList<>(processed.size());
+        for (Row<PendingGame> row : processed) {
+            if (games.remove(row.value.getId(), row)) {
+                archived.add(row.value.getId());
+            }
+        }
+        journal(out -> {
+            for (Long id : archived) {
+                out.writeByte(GAME_ARCHIVED);
+                out.writeLong(id);
+            }
+        });
+        return archived.size();
+    }
+
+    /**
+     * Compare-and-set статуса из PENDING под блокировкой ключа запроса.
+     *
+     * @return новая строка или {@code null}, если запроса нет или он уже обработан
+     */
+    private Row<PendingGame> transition(Long requestId, String status, Long processedBy) {
+        boolean[] changed = new boolean[1];
+        Row<PendingGame> row = games.computeIfPresent(requestId, (id, old) -> {
+            if (!STATUS_PENDING.equals(old.value.getStatus())) {
+                return old;
+            }
+            changed[0] = true;
+            return processed(old, status, processedBy);
+        });
+        return changed[0] ? row : null;
+    }
+
+    private Row<PendingGame> processed(Row<PendingGame> old, String status, Long processedBy) {
+        PendingGame game = copy(old.value);
+        game.setStatus(status);
+        game.setProcessedBy(processedBy);
+        game.setProcessedDate(LocalDateTime.now());
+        trackPending(game);
+        return new Row<>(game, old.version + 1);
+    }
+
+    private void trackPending(PendingGame game) {
+        if (STATUS_PENDING.equals(game.getStatus())) {
+            pendingIds.add(game.getId());
+        } else {
+            pendingIds.remove(game.getId());
+        }
+    }
+
+    private Row<User> creditGame(Long chatId) {
+        return updateUser(chatId, user -> {
+            user.setGamesPlayed(user.getGamesPlayed() + 1);
+            user.setBonusPoints(user.getBonusPoints() + DatabaseManager.GAME_BONUS_POINTS);
+            user.setHasPendingRequest(false);
+        });
+    }
+
+    /**
+     * Пишет снимок всего состояния и удаляет покрытые им сегменты журнала. Журнал сначала
+     * переключается на новый сегмент: всё, что записано в старые, к этому моменту уже в памяти
+     * и попадёт в снимок, а изменения, идущие параллельно со снимком, останутся в новом сегменте.
+     */
+    public synchronized void snapshot() throws IOException {
+        long segment = wal.rotate();
+        Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(segment);
+            out.writeLong(nextGameId.get());
+            for (Row<User> row : users.values()) {
+                writeUser(out, row);
+            }
+            for (Row<PendingGame> row : games.values()) {
+                writeGame(out, row);
+            }
+            synchronized (admins) {
+                for (Admin admin : admins.values()) {
+                    writeAdmin(out, admin);
+                }
+            }
+            out.writeByte(END);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        wal.deleteBefore(segment);
+        snapshots.incrementAndGet();
+    }
+
+    /**
+     * @return номер первого сегмента журнала, который не покрыт снимком
+     */
+    private long loadSnapshot() throws IOException {
+        Path file = dir.resolve(SNAPSHOT);
+        if (!Files.exists(file)) {
+            return 1;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Неизвестный формат снимка " + file);
+            }
+            long segment = in.readLong();
+            nextGameId.set(in.readLong());
+            readRows(in);
+            return segment;
+        }
+    }
+
+    /**
+     * Один отложенный fsync на всех, кто записал журнал, пока он ждал своей очереди (group commit).
+     */
+    private void scheduleSync() {
+        if (!syncScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.schedule(this::syncQuietly, syncMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Хранилище закрывается, close() сам сделает fsync
+            syncScheduled.set(false);
+        }
+    }
+
+    private void syncQuietly() {
+        syncScheduled.set(false);
+        try {
+            wal.sync();
+        } catch (IOException e) {
+            writeErrors.incrementAndGet();
+            log.error("❌ Ошибка fsync журнала хранилища", e);
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            writeErrors.incrementAndGet();
+            log.error("❌ Ошибка при записи снимка хранилища", e);
+        }
+    }
+
+    public long getWalBytes() {
+        return wal.getBytes();
+    }
+
+    public long getSnapshotCount() {
+        return snapshots.get();
+    }
+
+    public long getWriteErrors() {
+        return writeErrors.get();
+    }
+
+    /**
+     * Останавливает фоновые fsync и снимки, пишет последний снимок и закрывает журнал.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            snapshot();
+            wal.close();
+        } catch (IOException e) {
+            log.error("❌ Ошибка при закрытии хранилища", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Изменение уже применено в памяти; future завершается, когда запись журнала сохранена на диск.
+     */
+    private CompletableFuture<Void> journal(RowWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            writer.write(new DataOutputStream(bytes));
+            CompletableFuture<Void> durable = wal.durable(wal.append(bytes.toByteArray()));
+            scheduleSync();
+            return durable;
+        } catch (IOException e) {
+            writeErrors.incrementAndGet();
+            log.error("❌ Ошибка записи в журнал хранилища", e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Читает строки до конца потока или до END и применяет их, если они новее текущих.
+     */
+    private void readRows(DataInputStream in) throws IOException {
+        int type;
+        while ((type = in.read()) != -1 && type != END) {
+            switch (type) {
+                case USER:
+                    Row<User> user = readUser(in);
+                    users.merge(user.value.getChatId(), user, MemoryStorage::newer);
+                    break;
+                case GAME:
+                    Row<PendingGame> game = readGame(in);
+                    Row<PendingGame> current = games.merge(game.value.getId(), game, MemoryStorage::newer);
+                    trackPending(current.value);
+                    nextGameId.accumulateAndGet(current.value.getId() + 1, Math::max);
+                    break;
+                case GAME_ARCHIVED:
+                    long archivedId = in.readLong();
+                    games.remove(archivedId);
+                    pendingIds.remove(archivedId);
+                    nextGameId.accumulateAndGet(archivedId + 1, Math::max);
+                    break;
+                case ADMIN:
+                    Admin admin = readAdmin(in);
+                    admins.put(admin.getUserId(), admin);
+                    break;
+                case ADMIN_REMOVED:
+                    admins.remove(in.readLong());
+                    break;
+                default:
+                    throw new IOException("Неизвестный тип строки в хранилище: " + type);
+            }
+        }
+    }
+
+    private static <T> Row<T> newer(Row<T> current, Row<T> candidate) {
+        return candidate.version > current.version ? candidate : current;
+    }
+
+    private static void writeUser(DataOutputStream out, Row<User> row) throws IOException {
+        User user = row.value;
+        out.writeByte(USER);
+        out.writeLong(row.version);
+        out.writeLong(user.getChatId());
+        writeString(out, user.getUsername());
+        out.writeInt(user.getGamesPlayed());
+        out.writeInt(user.getBonusPoints());
+        writeDate(out, user.getRegistrationDate());
+        out.writeBoolean(user.isTermsAccepted());
+        out.writeBoolean(user.isHasPendingRequest());
+    }
+
+    private static Row<User> readUser(DataInputStream in) throws IOException {
+        long version = in.readLong();
+        User user = new User(in.readLong(), readString(in), in.readInt(), in.readInt(), readDate(in),
+                in.readBoolean(), in.readBoolean());
+        return new Row<>(user, version);
+    }
+
+    private static void writeGame(DataOutputStream out, Row<PendingGame> row) throws IOException {
+        PendingGame game = row.value;
+        out.writeByte(GAME);
+        out.writeLong(row.version);
+        out.writeLong(game.getId());
+        out.writeLong(game.getUserChatId());
+        writeString(out, game.getUsername());
+        writeDate(out, game.getRequestDate());
+        writeString(out, game.getStatus());
+        writeLong(out, game.getProcessedBy());
+        writeDate(out, game.getProcessedDate());
+    }
+
+    private static Row<PendingGame> readGame(DataInputStream in) throws IOException {
+        long version = in.readLong();
+        PendingGame game = new PendingGame(in.readLong(), in.readLong(), readString(in), readDate(in),
+                readString(in), readLong(in), readDate(in));
+        return new Row<>(game, version);
+    }
+
+    private static void writeAdmin(DataOutputStream out, Admin admin) throws IOException {
+        out.writeByte(ADMIN);
+        out.writeLong(admin.getUserId());
+        writeString(out, admin.getUsername());
+        writeLong(out, admin.getAddedBy());
+        writeDate(out, admin.getAddedDate());
+    }
+
+    private static Admin readAdmin(DataInputStream in) throws IOException {
+        return new Admin(in.readLong(), readString(in), readLong(in), readDate(in));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDateTime value) throws IOException {
+        writeString(out, value == null ? null : value.toString());
+    }
+
+    private static LocalDateTime readDate(DataInputStream in) throws IOException {
+        String value = readString(in);
+        return value == null ? null : LocalDateTime.parse(value);
+    }
+
+    private static User copy(User user) {
+        return new User(user.getChatId(), user.getUsername(), user.getGamesPlayed(), user.getBonusPoints(),
+                user.getRegistrationDate(), user.isTermsAccepted(), user.isHasPendingRequest());
+    }
+
+    private static PendingGame copy(PendingGame game) {
+        return new PendingGame(game.getId(), game.getUserChatId(), game.getUsername(), game.getRequestDate(),
+                game.getStatus(), game.getProcessedBy(), game.getProcessedDate());
+    }
+
+    /**
+     * Неизменяемая строка с версией; значение внутри не меняется после публикации в карте.
+     */
+    private static final class Row<T> {
+        private final T value;
+        private final long version;
+
+        private Row(T value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,227 @@
+package org.altmir.db.memory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал упреждающей записи {@link MemoryStorage}: сегменты wal-00000001.log, wal-00000002.log, ...
+ * Запись — длина, CRC32 и тело. Каждая запись сразу уходит в файл (переживает падение процесса),
+ * fsync делает {@link #sync()}, один на все записи, накопившиеся с прошлого раза. Кому нужна
+ * гарантия записи на диск, ждёт {@link #durable(long)}: future завершается после ближайшего fsync.
+ * Оборванная или битая запись в конце сегмента при восстановлении отбрасывается вместе с хвостом.
+ */
+@Slf4j
+final class WriteAheadLog implements AutoCloseable {
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    private final Path dir;
+    private final AtomicLong bytes = new AtomicLong();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private long syncedBytes;
+    private FileChannel channel;
+    private long segment;
+
+    WriteAheadLog(Path dir, long segment) throws IOException {
+        this.dir = dir;
+        this.segment = segment;
+        this.channel = open(dir, segment);
+    }
+
+    private static FileChannel open(Path dir, long segment) throws IOException {
+        return FileChannel.open(dir.resolve(fileName(segment)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    static String fileName(long segment) {
+        return String.format("%s%08d%s", PREFIX, segment, SUFFIX);
+    }
+
+    /**
+     * @return позиция конца записи в журнале, для {@link #durable(long)}
+     */
+    synchronized long append(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return bytes.addAndGet(HEADER_BYTES + payload.length);
+    }
+
+    /**
+     * Завершается, когда журнал до позиции position сохранён на диск.
+     */
+    CompletableFuture<Void> durable(long position) {
+        synchronized (waiters) {
+            if (syncedBytes >= position) {
+                return CompletableFuture.completedFuture(null);
+            }
+            Waiter waiter = new Waiter(position);
+            waiters.add(waiter);
+            return waiter.future;
+        }
+    }
+
+    private void synced(long position) {
+        List<Waiter> done = new ArrayList<>();
+        synchronized (waiters) {
+            syncedBytes = Math.max(syncedBytes, position);
+            waiters.removeIf(waiter -> waiter.position <= syncedBytes && done.add(waiter));
+        }
+        for (Waiter waiter : done) {
+            waiter.future.complete(null);
+        }
+    }
+
+    /**
+     * fsync текущего сегмента. Не держит блокировку записи: дописывать журнал можно параллельно.
+     */
+    void sync() throws IOException {
+        FileChannel current;
+        long position;
+        synchronized (this) {
+            current = channel;
+            position = bytes.get();
+        }
+        synchronized (waiters) {
+            if (syncedBytes >= position) {
+                return;
+            }
+        }
+        try {
+            current.force(false);
+        } catch (ClosedChannelException e) {
+            // Сегмент закрыт ротацией, она сама сделала fsync
+        }
+        synced(position);
+    }
+
+    /**
+     * Закрывает текущий сегмент и начинает следующий.
+     *
+     * @return номер нового сегмента: всё, что записано до него, уже видно в памяти хранилища
+     */
+    synchronized long rotate() throws IOException {
+        channel.force(true);
+        channel.close();
+        synced(bytes.get());
+        segment++;
+        channel = open(dir, segment);
+        return segment;
+    }
+
+    /**
+     * Удаляет сегменты, которые целиком покрыты снимком.
+     */
+    void deleteBefore(long segment) throws IOException {
+        for (Path file : segments(dir)) {
+            if (indexOf(file) < segment) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    long getBytes() {
+        return bytes.get();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(true);
+        channel.close();
+        synced(bytes.get());
+    }
+
+    /**
+     * Сегменты журнала в каталоге по возрастанию номера.
+     */
+    static List<Path> segments(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparingLong(WriteAheadLog::indexOf));
+        return files;
+    }
+
+    static long indexOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Передаёт тела записей сегмента по порядку и останавливается на первой оборванной или битой.
+     *
+     * @return сколько записей прочитано
+     */
+    static long replay(Path file, RecordHandler handler) throws IOException {
+        long records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return records;
+                }
+                byte[] payload;
+                int expectedCrc;
+                try {
+                    expectedCrc = in.readInt();
+                    if (length < 0 || length > MAX_RECORD_BYTES) {
+                        throw new EOFException();
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    log.warn("⚠️ Журнал {} оборван после записи {}, хвост отброшен", file.getFileName(), records);
+                    return records;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    log.warn("⚠️ Журнал {}: битая запись {}, хвост отброшен", file.getFileName(), records + 1);
+                    return records;
+                }
+                handler.handle(payload);
+                records++;
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final long position;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Waiter(long position) {
+            this.position = position;
+        }
+    }
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void handle(byte[] payload) throws IOException;
+    }
+}
@@ -0,0 +1,185 @@
+package org.altmir.dispatch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.altmir.metrics.LatencyHistogram;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Раздаёт входящие Update пулу обработчиков. Обновления распределяются по шардам
+ * по chat id: внутри шарда они выполняются строго по очереди, поэтому сообщения
+ * одного пользователя обрабатываются в порядке поступления, а разные чаты — параллельно.
+ */
+@Slf4j
+public class UpdateDispatcher implements AutoCloseable {
+    /** Сколько обновлений шард обрабатывает подряд, прежде чем уступить поток другим шардам. */
+    private static final int DRAIN_BATCH = 32;
+
+    private final Consumer<Update> handler;
+    private final ExecutorService workers;
+    private final Lane[] lanes;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram processing = new LatencyHistogram();
+    private final boolean virtualThreads;
+
+    public UpdateDispatcher(int shards, int platformThreads, Consumer<Update> handler) {
+        this.handler = handler;
+        this.lanes = new Lane[shards];
+        for (int i = 0; i < shards; i++) {
+            lanes[i] = new Lane();
+        }
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.workers = virtual != null ? virtual : Executors.newFixedThreadPool(platformThreads, runnable -> {
+            Thread thread = new Thread(runnable, "update-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() появился в JDK 21; проект собирается под 11,
+     * поэтому ищем его рефлексией и откатываемся на обычный пул, если метода нет.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public void dispatch(Update update) {
+        Lane lane = lanes[shardOf(chatIdOf(update))];
+        queueDepth.incrementAndGet();
+        lane.submit(new Task(update, System.nanoTime()));
+    }
+
+    private int shardOf(long chatId) {
+        long mixed = chatId * 0x9E3779B97F4A7C15L;
+        return (int) ((mixed >>> 33) % lanes.length);
+    }
+
+    public static long chatIdOf(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasCallbackQuery()) {
+            if (update.getCallbackQuery().getMessage() != null) {
+                return update.getCallbackQuery().getMessage().getChatId();
+            }
+            return update.getCallbackQuery().getFrom().getId();
+        }
+        return 0L;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getShardQueueDepth(int shard) {
+        return lanes[shard].depth.get();
+    }
+
+    public int getShardCount() {
+        return lanes.length;
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getProcessingLatency() {
+        return processing;
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Task {
+        private final Update update;
+        private final long enqueuedAt;
+
+        private Task(Update update, long enqueuedAt) {
+            this.update = update;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    /**
+     * Последовательная очередь поверх общего пула: в каждый момент времени
+     * её разбирает не более одного потока.
+     */
+    private final class Lane {
+        private final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicInteger depth = new AtomicInteger();
+
+        void submit(Task task) {
+            tasks.add(task);
+            depth.incrementAndGet();
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                workers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                for (int i = 0; i < DRAIN_BATCH; i++) {
+                    Task task = tasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    depth.decrementAndGet();
+                    queueDepth.decrementAndGet();
+                    run(task);
+                }
+            } finally {
+                scheduled.set(false);
+                if (!tasks.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        private void run(Task task) {
+            long start = System.nanoTime();
+            queueWait.record(start - task.enqueuedAt);
+            try {
+                handler.accept(task.update);
+            } catch (Exception e) {
+                log.error("❌ Ошибка обработки обновления {}", task.update.getUpdateId(), e);
+            } finally {
+                processing.recordSince(start);
+            }
+        }
+    }
+}
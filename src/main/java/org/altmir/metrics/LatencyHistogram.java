@@ -0,0 +1,88 @@
+package org.altmir.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек с экспоненциальными корзинами (1 мкс, 2 мкс, 4 мкс ... ~67 с).
+ * Запись — несколько атомарных инкрементов без блокировок и аллокаций.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 27;
+    private static final long[] UPPER_BOUNDS_NANOS = new long[BUCKETS];
+
+    static {
+        for (int i = 0; i < BUCKETS; i++) {
+            UPPER_BOUNDS_NANOS[i] = TimeUnit.MICROSECONDS.toNanos(1L << i);
+        }
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        sumNanos.addAndGet(nanos);
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    private static int bucketOf(long nanos) {
+        long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+        int bucket = 64 - Long.numberOfLeadingZeros(micros - 1);
+        return Math.min(bucket, BUCKETS);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSumNanos() {
+        return sumNanos.get();
+    }
+
+    public static int getBucketCount() {
+        return BUCKETS;
+    }
+
+    public static long getUpperBoundNanos(int bucket) {
+        return UPPER_BOUNDS_NANOS[bucket];
+    }
+
+    /**
+     * Количество замеров в корзине; корзина {@link #getBucketCount()} — всё, что дольше последней границы.
+     */
+    public long getBucket(int bucket) {
+        return counts.get(bucket);
+    }
+
+    /**
+     * Верхняя граница корзины, в которую попадает квантиль {@code q} (0..1), в наносекундах.
+     */
+    public long percentileNanos(double q) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return UPPER_BOUNDS_NANOS[i];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, p50=%.3f ms, p99=%.3f ms",
+                getCount(), percentileNanos(0.5) / 1e6, percentileNanos(0.99) / 1e6);
+    }
+}
@@ -0,0 +1,166 @@
+package org.altmir.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Реестр метрик процесса в духе Micrometer: таймеры, счётчики и значения, которые
+ * считываются в момент выгрузки. Метрика задаётся именем и парами меток
+ * {@code "route", "/start"}; повторный вызов с теми же именем и метками возвращает тот же объект.
+ * {@link #scrape()} отдаёт всё в текстовом формате Prometheus.
+ */
+public class MetricsRegistry {
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), HISTOGRAM("histogram");
+
+        private final String prometheusName;
+
+        Type(String prometheusName) {
+            this.prometheusName = prometheusName;
+        }
+    }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public Timer timer(String name, String... labels) {
+        return (Timer) family(name, Type.HISTOGRAM)
+                .series.computeIfAbsent(renderLabels(labels), key -> new Timer(new LatencyHistogram()));
+    }
+
+    /**
+     * Выгружает уже существующую гистограмму (например, очереди диспетчера) как таймер.
+     */
+    public Timer histogram(String name, LatencyHistogram histogram, String... labels) {
+        return (Timer) family(name, Type.HISTOGRAM)
+                .series.computeIfAbsent(renderLabels(labels), key -> new Timer(histogram));
+    }
+
+    public Counter counter(String name, String... labels) {
+        return (Counter) family(name, Type.COUNTER)
+                .series.computeIfAbsent(renderLabels(labels), key -> new Counter());
+    }
+
+    /**
+     * Счётчик, значение которого хранит сам объект (например, {@link org.altmir.db.PoolMetrics}).
+     */
+    public void functionCounter(String name, DoubleSupplier value, String... labels) {
+        family(name, Type.COUNTER).series.putIfAbsent(renderLabels(labels), value);
+    }
+
+    public void gauge(String name, Supplier<Number> value, String... labels) {
+        family(name, Type.GAUGE).series.putIfAbsent(renderLabels(labels), value);
+    }
+
+    private Family family(String name, Type type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Метрика " + name + " уже зарегистрирована как " + family.type.prometheusName);
+        }
+        return family;
+    }
+
+    private static String renderLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Метки задаются парами имя-значение");
+        }
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"");
+            escape(out, labels[i + 1]);
+            out.append('"');
+        }
+        return out.toString();
+    }
+
+    private static void escape(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    /**
+     * Текстовый формат Prometheus 0.0.4. Таймеры выгружаются в секундах.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# TYPE ").append(name).append(' ').append(family.type.prometheusName).append('\n');
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                String labels = series.getKey();
+                Object metric = series.getValue();
+                if (metric instanceof Timer) {
+                    writeHistogram(out, name, labels, ((Timer) metric).getHistogram());
+                } else {
+                    writeSample(out, name, labels, value(metric));
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String value(Object metric) {
+        if (metric instanceof Counter) {
+            return Long.toString(((Counter) metric).get());
+        }
+        if (metric instanceof DoubleSupplier) {
+            return format(((DoubleSupplier) metric).getAsDouble());
+        }
+        Number number = ((Supplier<Number>) metric).get();
+        return number == null ? "NaN" : format(number.doubleValue());
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        String separator = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < LatencyHistogram.getBucketCount(); i++) {
+            cumulative += histogram.getBucket(i);
+            String le = Double.toString(LatencyHistogram.getUpperBoundNanos(i) / 1e9);
+            writeSample(out, name + "_bucket", separator + "le=\"" + le + "\"", Long.toString(cumulative));
+        }
+        // +Inf и _count считаем по тем же корзинам, чтобы они не разошлись из-за параллельной записи
+        long count = cumulative + histogram.getBucket(LatencyHistogram.getBucketCount());
+        writeSample(out, name + "_bucket", separator + "le=\"+Inf\"", Long.toString(count));
+        writeSample(out, name + "_sum", labels, Double.toString(histogram.getSumNanos() / 1e9));
+        writeSample(out, name + "_count", labels, Long.toString(count));
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labels, String value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static final class Family {
+        private final Type type;
+        private final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        private Family(Type type) {
+            this.type = type;
+        }
+    }
+}
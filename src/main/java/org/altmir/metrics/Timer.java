@@ -0,0 +1,24 @@
+package org.altmir.metrics;
+
+/**
+ * Таймер из {@link MetricsRegistry}: замеры складываются в {@link LatencyHistogram}.
+ */
+public class Timer {
+    private final LatencyHistogram histogram;
+
+    Timer(LatencyHistogram histogram) {
+        this.histogram = histogram;
+    }
+
+    public void record(long nanos) {
+        histogram.record(nanos);
+    }
+
+    public void recordSince(long startNanos) {
+        histogram.recordSince(startNanos);
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+}
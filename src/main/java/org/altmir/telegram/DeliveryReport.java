@@ -0,0 +1,17 @@
+package org.altmir.telegram;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Итог доставки одного сообщения через {@link NotificationDispatcher}.
+ */
+@Data
+@AllArgsConstructor
+public class DeliveryReport {
+    private Long chatId;
+    private boolean delivered;
+    private int attempts;
+    private long latencyMillis;
+    private String error;
+}
@@ -0,0 +1,131 @@
+package org.altmir.telegram;
+
+import org.altmir.metrics.MetricsRegistry;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Параллельная доставка через executeAsync. Ответы 429 повторяются с задержкой из retry_after
+ * (или экспоненциальной, если Telegram её не прислал). Отправки в один чат выполняются
+ * по очереди, чтобы сообщения не обгоняли друг друга; разные чаты идут параллельно.
+ */
+public class NotificationDispatcher implements AutoCloseable {
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MS = 500;
+
+    private final AbsSender sender;
+    private final RateLimiter rateLimiter;
+    private final MetricsRegistry metrics;
+    private final Map<Long, CompletableFuture<DeliveryReport>> chatTails = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "notification-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public NotificationDispatcher(AbsSender sender, RateLimiter rateLimiter, MetricsRegistry metrics) {
+        this.sender = sender;
+        this.rateLimiter = rateLimiter;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Доставляет метод не раньше чем через {@code delayNanos} и после всех ранее поставленных
+     * отправок в тот же чат. {@code chatId == null} — метод не привязан к чату и ни с чем не упорядочивается.
+     */
+    public CompletableFuture<DeliveryReport> deliver(BotApiMethod<?> method, Long chatId, long delayNanos) {
+        CompletableFuture<DeliveryReport> result = new CompletableFuture<>();
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + delayNanos;
+
+        if (chatId == null) {
+            schedule(method, null, 1, startedAt, result, delayNanos);
+            return result;
+        }
+
+        CompletableFuture<DeliveryReport> previous = chatTails.put(chatId, result);
+        result.whenComplete((report, error) -> chatTails.remove(chatId, result));
+        if (previous == null) {
+            schedule(method, chatId, 1, startedAt, result, delayNanos);
+        } else {
+            previous.whenComplete((report, error) ->
+                    schedule(method, chatId, 1, startedAt, result, deadline - System.nanoTime()));
+        }
+        return result;
+    }
+
+    private void schedule(BotApiMethod<?> method, Long chatId, int attempt, long startedAt,
+                          CompletableFuture<DeliveryReport> result, long delayNanos) {
+        if (delayNanos <= 0) {
+            attempt(method, chatId, attempt, startedAt, result);
+        } else {
+            scheduler.schedule(() -> attempt(method, chatId, attempt, startedAt, result), delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void attempt(BotApiMethod<?> method, Long chatId, int attempt, long startedAt,
+                         CompletableFuture<DeliveryReport> result) {
+        String apiMethod = method.getMethod();
+        long callStarted = System.nanoTime();
+        CompletableFuture<?> call;
+        try {
+            call = sender.executeAsync(method);
+        } catch (TelegramApiException e) {
+            metrics.counter("kontrabot_telegram_errors_total", "method", apiMethod).increment();
+            result.complete(report(chatId, false, attempt, startedAt, e.getMessage()));
+            return;
+        }
+
+        call.whenComplete((sent, error) -> {
+            metrics.timer("kontrabot_telegram_request_seconds", "method", apiMethod).recordSince(callStarted);
+            if (error == null) {
+                result.complete(report(chatId, true, attempt, startedAt, null));
+                return;
+            }
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            boolean rateLimited = isTooManyRequests(cause);
+            metrics.counter(rateLimited ? "kontrabot_telegram_rate_limited_total" : "kontrabot_telegram_errors_total",
+                    "method", apiMethod).increment();
+            if (rateLimited && attempt < MAX_ATTEMPTS) {
+                long backoffNanos = TimeUnit.MILLISECONDS.toNanos(backoffMillis((TelegramApiRequestException) cause, attempt));
+                long limit = chatId == null ? rateLimiter.reserveGlobal() : rateLimiter.reserve(chatId);
+                schedule(method, chatId, attempt + 1, startedAt, result, Math.max(backoffNanos, limit));
+            } else {
+                result.complete(report(chatId, false, attempt, startedAt, cause.getMessage()));
+            }
+        });
+    }
+
+    private static boolean isTooManyRequests(Throwable error) {
+        return error instanceof TelegramApiRequestException
+                && Integer.valueOf(429).equals(((TelegramApiRequestException) error).getErrorCode());
+    }
+
+    private static long backoffMillis(TelegramApiRequestException error, int attempt) {
+        if (error.getParameters() != null && error.getParameters().getRetryAfter() != null) {
+            return TimeUnit.SECONDS.toMillis(error.getParameters().getRetryAfter());
+        }
+        return BASE_BACKOFF_MS << (attempt - 1);
+    }
+
+    private static DeliveryReport report(Long chatId, boolean delivered, int attempts, long startedAt, String error) {
+        return new DeliveryReport(chatId, delivered, attempts,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), error);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+}
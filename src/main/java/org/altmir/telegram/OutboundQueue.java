@@ -0,0 +1,246 @@
+package org.altmir.telegram;
+
+import lombok.extern.slf4j.Slf4j;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Единая очередь исходящих вызовов Bot API. Обработчики только кладут сообщение в очередь
+ * и сразу возвращаются; отдельный поток забирает их по приоритету, когда общий лимит
+ * {@link RateLimiter} разрешает следующую отправку, склеивает подряд идущие тексты в один
+ * чат и передаёт их в {@link NotificationDispatcher}.
+ */
+@Slf4j
+public class OutboundQueue implements AutoCloseable {
+    private static final int MAX_MESSAGE_LENGTH = 4096;
+    private static final String COALESCE_SEPARATOR = "\n\n";
+
+    public enum Priority {
+        /** Ответы на нажатия inline-кнопок: Telegram ждёт их несколько секунд. */
+        CALLBACK,
+        /** Ответ пользователю на его сообщение. */
+        REPLY,
+        /** Уведомления, которые пользователь не ждёт прямо сейчас. */
+        NOTIFICATION
+    }
+
+    private final NotificationDispatcher dispatcher;
+    private final RateLimiter rateLimiter;
+    private final List<Queue<Outbound>> lanes = new ArrayList<>();
+    private final Semaphore pending = new Semaphore(0);
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Thread drainThread;
+    private volatile boolean running = true;
+
+    public OutboundQueue(NotificationDispatcher dispatcher, RateLimiter rateLimiter) {
+        this.dispatcher = dispatcher;
+        this.rateLimiter = rateLimiter;
+        for (int i = 0; i < Priority.values().length; i++) {
+            lanes.add(new ConcurrentLinkedQueue<>());
+        }
+        this.drainThread = new Thread(this::drain, "outbound-queue");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    public CompletableFuture<DeliveryReport> send(SendMessage message, Priority priority) {
+        return enqueue(message, Long.valueOf(message.getChatId()), priority);
+    }
+
+    public CompletableFuture<List<DeliveryReport>> sendAll(List<SendMessage> messages, Priority priority) {
+        List<CompletableFuture<DeliveryReport>> deliveries = new ArrayList<>(messages.size());
+        for (SendMessage message : messages) {
+            deliveries.add(send(message, priority));
+        }
+        return CompletableFuture.allOf(deliveries.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    List<DeliveryReport> reports = new ArrayList<>(deliveries.size());
+                    for (CompletableFuture<DeliveryReport> delivery : deliveries) {
+                        reports.add(delivery.join());
+                    }
+                    return reports;
+                });
+    }
+
+    /**
+     * Не блокирует. {@code chatId == null} — вызов без чата (например, answerCallbackQuery).
+     */
+    public CompletableFuture<DeliveryReport> enqueue(BotApiMethod<?> method, Long chatId, Priority priority) {
+        Outbound item = new Outbound(method, chatId);
+        lanes.get(priority.ordinal()).add(item);
+        pending.release();
+        return item.result;
+    }
+
+    public int getQueueDepth() {
+        return pending.availablePermits();
+    }
+
+    public int getQueueDepth(Priority priority) {
+        return lanes.get(priority.ordinal()).size();
+    }
+
+    /**
+     * Сколько вызовов уже забрано из очереди, но ещё не получило ответа от Bot API.
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                pending.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            long wait = rateLimiter.reserveGlobal();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Queue<Outbound> lane = highestNonEmptyLane();
+            Outbound item = coalesce(lane, lane.poll());
+            long chatDelay = item.chatId == null ? 0 : rateLimiter.reserveChat(item.chatId);
+
+            inFlight.incrementAndGet();
+            dispatcher.deliver(item.method, item.chatId, chatDelay).whenComplete((report, error) -> {
+                inFlight.decrementAndGet();
+                if (error != null) {
+                    report = new DeliveryReport(item.chatId, false, 0, 0, error.getMessage());
+                }
+                if (!report.isDelivered()) {
+                    log.warn("❌ Ошибка отправки в чат {}: {}", item.chatId, report.getError());
+                }
+                item.complete(report);
+            });
+        }
+    }
+
+    /**
+     * Производитель кладёт элемент в очередь до release(), поэтому после acquire()
+     * хотя бы одна полоса гарантированно непуста.
+     */
+    private Queue<Outbound> highestNonEmptyLane() {
+        while (true) {
+            for (Queue<Outbound> lane : lanes) {
+                if (!lane.isEmpty()) {
+                    return lane;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Приклеивает к тексту следующие за ним в той же полосе сообщения в тот же чат, если у них нет
+     * клавиатуры, ответа на сообщение и разметки entities, совпадают parse mode и параметры доставки,
+     * а общий текст влезает в лимит Telegram.
+     */
+    private Outbound coalesce(Queue<Outbound> lane, Outbound first) {
+        if (!first.isPlainText()) {
+            return first;
+        }
+
+        SendMessage head = (SendMessage) first.method;
+        StringBuilder text = null;
+        Outbound merged = first;
+        Outbound next;
+        while ((next = lane.peek()) != null && canAppend(head, next, text == null ? head.getText().length() : text.length())) {
+            lane.poll();
+            pending.acquireUninterruptibly();
+            if (text == null) {
+                text = new StringBuilder(head.getText());
+                merged = new Outbound(null, first.chatId);
+                merged.followers.add(first);
+            }
+            text.append(COALESCE_SEPARATOR).append(((SendMessage) next.method).getText());
+            merged.followers.add(next);
+            coalesced.incrementAndGet();
+        }
+
+        if (text == null) {
+            return first;
+        }
+        SendMessage message = new SendMessage(head.getChatId(), text.toString());
+        message.setParseMode(head.getParseMode());
+        message.setMessageThreadId(head.getMessageThreadId());
+        message.setDisableWebPagePreview(head.getDisableWebPagePreview());
+        message.setLinkPreviewOptions(head.getLinkPreviewOptions());
+        message.setDisableNotification(head.getDisableNotification());
+        message.setProtectContent(head.getProtectContent());
+        merged.method = message;
+        return merged;
+    }
+
+    private static boolean canAppend(SendMessage head, Outbound next, int currentLength) {
+        if (!next.isPlainText() || !Objects.equals(next.chatId, Long.valueOf(head.getChatId()))) {
+            return false;
+        }
+        SendMessage candidate = (SendMessage) next.method;
+        return Objects.equals(head.getParseMode(), candidate.getParseMode())
+                && Objects.equals(head.getMessageThreadId(), candidate.getMessageThreadId())
+                && Objects.equals(head.getDisableWebPagePreview(), candidate.getDisableWebPagePreview())
+                && Objects.equals(head.getLinkPreviewOptions(), candidate.getLinkPreviewOptions())
+                && Objects.equals(head.getDisableNotification(), candidate.getDisableNotification())
+                && Objects.equals(head.getProtectContent(), candidate.getProtectContent())
+                && currentLength + COALESCE_SEPARATOR.length() + candidate.getText().length() <= MAX_MESSAGE_LENGTH;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        drainThread.interrupt();
+    }
+
+    private static final class Outbound {
+        private BotApiMethod<?> method;
+        private final Long chatId;
+        private final CompletableFuture<DeliveryReport> result = new CompletableFuture<>();
+        private final List<Outbound> followers = new ArrayList<>(0);
+
+        private Outbound(BotApiMethod<?> method, Long chatId) {
+            this.method = method;
+            this.chatId = chatId;
+        }
+
+        /**
+         * Склеивать можно только текст без привязок к позиции: ответ на сообщение относится к одному
+         * тексту, а смещения entities после склейки указывали бы не туда.
+         */
+        private boolean isPlainText() {
+            if (!(method instanceof SendMessage)) {
+                return false;
+            }
+            SendMessage message = (SendMessage) method;
+            return message.getReplyMarkup() == null
+                    && message.getReplyToMessageId() == null
+                    && message.getReplyParameters() == null
+                    && (message.getEntities() == null || message.getEntities().isEmpty());
+        }
+
+        private void complete(DeliveryReport report) {
+            result.complete(report);
+            for (Outbound follower : followers) {
+                follower.result.complete(report);
+            }
+        }
+    }
+}
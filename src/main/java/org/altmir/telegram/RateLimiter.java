@@ -0,0 +1,49 @@
+package org.altmir.telegram;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Лимиты Bot API на исходящие сообщения: общий на бота и отдельный на каждый чат.
+ * Один экземпляр на процесс, через него проходят все отправки.
+ */
+public class RateLimiter {
+    private static final int MAX_IDLE_BUCKETS = 10_000;
+
+    private final TokenBucket global;
+    private final double perChatPerSecond;
+    private final int perChatBurst;
+    private final Map<Long, TokenBucket> chats = new ConcurrentHashMap<>();
+
+    public RateLimiter(double globalPerSecond, double perChatPerSecond, int perChatBurst) {
+        this.global = new TokenBucket(globalPerSecond, (int) Math.ceil(globalPerSecond));
+        this.perChatPerSecond = perChatPerSecond;
+        this.perChatBurst = perChatBurst;
+    }
+
+    /**
+     * Резервирует отправку в чат и возвращает задержку в наносекундах, после которой её можно выполнить.
+     */
+    public long reserve(long chatId) {
+        return Math.max(reserveChat(chatId), reserveGlobal());
+    }
+
+    /**
+     * Резервирует только лимит чата; общий лимит вызывающий код соблюдает сам.
+     */
+    public long reserveChat(long chatId) {
+        long now = System.nanoTime();
+        if (chats.size() > MAX_IDLE_BUCKETS) {
+            chats.values().removeIf(bucket -> bucket.isIdle(now));
+        }
+        TokenBucket chat = chats.computeIfAbsent(chatId, id -> new TokenBucket(perChatPerSecond, perChatBurst));
+        return chat.reserve(now);
+    }
+
+    /**
+     * Резервирует только общий лимит — для методов, не привязанных к чату (например, answerCallbackQuery).
+     */
+    public long reserveGlobal() {
+        return global.reserve(System.nanoTime());
+    }
+}
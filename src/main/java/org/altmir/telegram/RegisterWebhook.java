@@ -0,0 +1,42 @@
+package org.altmir.telegram;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethodBoolean;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiValidationException;
+
+/**
+ * setWebhook без сертификата. Встроенный SetWebhook из telegrambots отправляется только
+ * через TelegramWebhookBot, а этот метод уходит обычным execute() того же бота.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RegisterWebhook extends BotApiMethodBoolean {
+    @JsonProperty("url")
+    private final String url;
+
+    @JsonProperty("secret_token")
+    private final String secretToken;
+
+    @JsonProperty("max_connections")
+    private final Integer maxConnections;
+
+    public RegisterWebhook(String url, String secretToken, Integer maxConnections) {
+        this.url = url;
+        this.secretToken = secretToken;
+        this.maxConnections = maxConnections;
+    }
+
+    @Override
+    public String getMethod() {
+        return "setWebhook";
+    }
+
+    @Override
+    public void validate() throws TelegramApiValidationException {
+        if (url == null || !url.startsWith("https://")) {
+            throw new TelegramApiValidationException("Адрес вебхука должен начинаться с https://", this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.altmir.telegram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket в виде GCRA: вместо счётчика токенов хранится «теоретическое время»
+ * следующей отправки. {@link #reserve(long)} не блокирует, а сразу резервирует слот
+ * и возвращает, сколько нужно подождать до него.
+ */
+public class TokenBucket {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private long theoreticalArrival;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = intervalNanos * Math.max(0, burst - 1);
+    }
+
+    public synchronized long reserve(long nowNanos) {
+        long tat = Math.max(theoreticalArrival, nowNanos);
+        long wait = Math.max(0, tat - burstNanos - nowNanos);
+        theoreticalArrival = tat + intervalNanos;
+        return wait;
+    }
+
+    /**
+     * Ведро полное и его можно выбросить без потери состояния.
+     */
+    public synchronized boolean isIdle(long nowNanos) {
+        return theoreticalArrival <= nowNanos;
+    }
+}
@@ -0,0 +1,171 @@
+package org.altmir.telegram;
+
+import lombok.extern.slf4j.Slf4j;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.glassfish.grizzly.ReadHandler;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.io.NIOInputStream;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.util.HttpStatus;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Приём апдейтов через вебхук на встроенном Grizzly (он уже приходит вместе с telegrambots).
+ * Тело запроса дочитывается неблокирующе, разбирается Jackson и сразу передаётся в {@code sink} —
+ * в боте это {@code onUpdateReceived}, то есть тот же диспетчер, что и при long polling.
+ */
+@Slf4j
+public class WebhookServer implements AutoCloseable {
+    public static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final HttpServer server = new HttpServer();
+    private final byte[] secretToken;
+    private final Consumer<Update> sink;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param secretToken значение заголовка {@value #SECRET_HEADER}; обязательно, иначе любой, кто достучится
+     *                    до порта, сможет прислать апдейт от имени администратора
+     */
+    public WebhookServer(String host, int port, String path, String secretToken, Consumer<Update> sink) {
+        if (secretToken == null || secretToken.isEmpty()) {
+            throw new IllegalArgumentException("Для вебхука нужен секрет " + SECRET_HEADER);
+        }
+        this.secretToken = secretToken.getBytes(StandardCharsets.UTF_8);
+        this.sink = sink;
+        server.addListener(new NetworkListener("telegram-webhook", host, port));
+        server.getServerConfiguration().addHttpHandler(new UpdateHandler(), path);
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public void close() {
+        server.shutdownNow();
+    }
+
+    /**
+     * Сравнение за постоянное время, чтобы секрет нельзя было подобрать по времени ответа.
+     */
+    private boolean isAuthorized(String header) {
+        return header != null && MessageDigest.isEqual(secretToken, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private final class UpdateHandler extends HttpHandler {
+        @Override
+        public void service(Request request, Response response) {
+            if (!Method.POST.equals(request.getMethod())) {
+                reject(response, HttpStatus.METHOD_NOT_ALLOWED_405);
+                return;
+            }
+            if (!isAuthorized(request.getHeader(SECRET_HEADER))) {
+                reject(response, HttpStatus.FORBIDDEN_403);
+                return;
+            }
+
+            // Content-Length присылает клиент: по нему отказываем сразу, но буфер больше лимита не выделяем
+            int declaredLength = request.getContentLength();
+            if (declaredLength > MAX_BODY_BYTES) {
+                reject(response, HttpStatus.REQUEST_ENTITY_TOO_LARGE_413);
+                return;
+            }
+
+            response.suspend();
+            NIOInputStream in = request.getNIOInputStream();
+            ByteArrayOutputStream body = new ByteArrayOutputStream(Math.min(Math.max(declaredLength, 256), MAX_BODY_BYTES));
+            in.notifyAvailable(new ReadHandler() {
+                @Override
+                public void onDataAvailable() throws Exception {
+                    drain(in, body);
+                    if (body.size() > MAX_BODY_BYTES) {
+                        rejected.incrementAndGet();
+                        finish(response, HttpStatus.REQUEST_ENTITY_TOO_LARGE_413);
+                        return;
+                    }
+                    in.notifyAvailable(this);
+                }
+
+                @Override
+                public void onAllDataRead() throws Exception {
+                    drain(in, body);
+                    finish(response, deliver(body.toByteArray()));
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    log.warn("❌ Ошибка чтения вебхука", t);
+                    finish(response, HttpStatus.BAD_REQUEST_400);
+                }
+            });
+        }
+
+        private HttpStatus deliver(byte[] body) {
+            Update update;
+            try {
+                update = MAPPER.readValue(body, Update.class);
+            } catch (IOException e) {
+                rejected.incrementAndGet();
+                log.warn("❌ Некорректный апдейт во вебхуке: {}", e.getMessage());
+                return HttpStatus.BAD_REQUEST_400;
+            }
+
+            try {
+                sink.accept(update);
+            } catch (RuntimeException e) {
+                // 5xx — Telegram повторит доставку этого апдейта позже
+                log.error("❌ Ошибка передачи апдейта {}", update.getUpdateId(), e);
+                return HttpStatus.INTERNAL_SERVER_ERROR_500;
+            }
+            accepted.incrementAndGet();
+            return HttpStatus.OK_200;
+        }
+
+        private void reject(Response response, HttpStatus status) {
+            rejected.incrementAndGet();
+            response.setStatus(status);
+        }
+
+        private void finish(Response response, HttpStatus status) {
+            if (!response.isSuspended()) {
+                return;
+            }
+            response.setStatus(status);
+            response.resume();
+        }
+    }
+
+    private static void drain(NIOInputStream in, ByteArrayOutputStream body) throws IOException {
+        byte[] chunk = new byte[Math.max(in.readyData(), 1)];
+        int read;
+        while (in.isReady() && (read = in.read(chunk)) > 0) {
+            body.write(chunk, 0, read);
+        }
+    }
+}
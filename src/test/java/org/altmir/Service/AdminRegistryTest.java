@@ -0,0 +1,115 @@
+package org.altmir.Service;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.altmir.dao.Admin;
+import org.altmir.db.AdminRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Набор администраторов: поиск, уведомление слушателей и сохранение прежнего набора,
+ * если перечитать список из базы не удалось.
+ */
+public class AdminRegistryTest
+    extends TestCase
+{
+    public AdminRegistryTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( AdminRegistryTest.class );
+    }
+
+    public void testReplaceAllSortsAndNotifiesWithCopy()
+    {
+        AdminRegistry registry = new AdminRegistry();
+        List<long[]> notified = new ArrayList<>();
+        registry.addListener( notified::add );
+
+        registry.replaceAll( Arrays.asList( 30L, 10L, 20L ) );
+
+        assertTrue( registry.contains( 10L ) );
+        assertTrue( registry.contains( 30L ) );
+        assertFalse( registry.contains( 15L ) );
+        assertEquals( 3, registry.size() );
+        assertTrue( Arrays.equals( new long[]{ 10L, 20L, 30L }, registry.snapshot() ) );
+
+        assertEquals( 1, notified.size() );
+        notified.get( 0 )[0] = 99L;
+        assertTrue( "слушатель получает копию, а не сам массив", registry.contains( 10L ) );
+
+        registry.replaceAll( Arrays.asList( 20L ) );
+        assertFalse( registry.contains( 10L ) );
+        assertEquals( 2, notified.size() );
+    }
+
+    public void testFailedReloadKeepsPreviousAdmins()
+    {
+        FlakyAdmins repository = new FlakyAdmins();
+        AdminService service = new AdminService( repository, null, null );
+        assertTrue( service.isAdmin( 1L ) );
+
+        repository.failing = true;
+        service.addAdmin( 2L, "second", 1L );
+
+        assertTrue( "сбой базы не должен снимать права", service.isAdmin( 1L ) );
+        assertFalse( service.isAdmin( 2L ) );
+
+        repository.failing = false;
+        service.removeAdmin( 3L );
+        assertTrue( service.isAdmin( 2L ) );
+    }
+
+    private static final class FlakyAdmins implements AdminRepository
+    {
+        private final List<Long> ids = new ArrayList<>( Arrays.asList( 1L ) );
+        private boolean failing;
+
+        @Override
+        public boolean isAdmin( Long userId )
+        {
+            return ids.contains( userId );
+        }
+
+        @Override
+        public List<Admin> getAllAdmins()
+        {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public List<Long> getAllAdminIds()
+        {
+            if ( failing )
+            {
+                throw new IllegalStateException( "база недоступна" );
+            }
+            return new ArrayList<>( ids );
+        }
+
+        @Override
+        public List<String> getAdminList()
+        {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void addAdmin( Long userId, String username, Long addedBy )
+        {
+            ids.add( userId );
+        }
+
+        @Override
+        public void removeAdmin( Long userId )
+        {
+            ids.remove( userId );
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.altmir.Service;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.StringReader;
+
+public class BonusBatchTest
+    extends TestCase
+{
+    public BonusBatchTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( BonusBatchTest.class );
+    }
+
+    public void testParsesCsvAndInlinePairs() throws Exception
+    {
+        BonusBatch csv = BonusBatch.parse( new StringReader( "chat_id;points\r\n111;50\r\n\r\n222;-25\r\n" ) );
+        assertTrue( csv.getErrors().toString(), csv.getErrors().isEmpty() );
+        assertEquals( 2, csv.size() );
+        assertEquals( 222L, csv.getChatId( 1 ) );
+        assertEquals( -25, csv.getPoints( 1 ) );
+
+        BonusBatch inline = BonusBatch.parse( new StringReader( "111 50, 222 30,333 20" ) );
+        assertEquals( 3, inline.size() );
+        assertEquals( 100L, inline.getTotalPoints() );
+    }
+
+    public void testReportsBadLines() throws Exception
+    {
+        BonusBatch batch = BonusBatch.parse( new StringReader( "111,50\n222,abc\n333" ) );
+        assertEquals( 2, batch.getErrors().size() );
+        assertTrue( batch.getErrors().get( 0 ).startsWith( "строка 2" ) );
+        assertTrue( batch.getErrors().get( 1 ).startsWith( "строка 3" ) );
+    }
+}
@@ -0,0 +1,143 @@
+package org.altmir.Service;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.altmir.dao.PendingGame;
+import org.altmir.db.Leaderboard;
+import org.altmir.db.memory.MemoryStorage;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Листание очереди запросов по курсору: страницы не теряют и не повторяют запросы,
+ * даже если часть очереди обработали между нажатиями.
+ */
+public class PendingQueuePageTest
+    extends TestCase
+{
+    private static final long NEVER = Long.MAX_VALUE / 2;
+
+    private Path dir;
+    private MemoryStorage storage;
+    private AdminService adminService;
+
+    public PendingQueuePageTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( PendingQueuePageTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = Files.createTempDirectory( "kontrabot-queue" );
+        storage = new MemoryStorage( dir, new Leaderboard(), NEVER, NEVER );
+        adminService = new AdminService( storage, storage, storage );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        storage.close();
+        for ( File file : dir.toFile().listFiles() )
+        {
+            file.delete();
+        }
+        dir.toFile().delete();
+    }
+
+    private List<Long> addRequests( int count )
+    {
+        List<Long> ids = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            ids.add( storage.addPendingGame( 100L + i, "user" + i ) );
+        }
+        return ids;
+    }
+
+    private static List<Long> ids( PendingQueuePage page )
+    {
+        List<Long> ids = new ArrayList<>();
+        for ( PendingGame game : page.getGames() )
+        {
+            ids.add( game.getId() );
+        }
+        return ids;
+    }
+
+    public void testEmptyQueue()
+    {
+        PendingQueuePage page = adminService.getPendingQueueAfter( 0 );
+
+        assertTrue( page.isEmpty() );
+        assertFalse( page.isHasPrevious() );
+        assertFalse( page.isHasNext() );
+    }
+
+    public void testPagesForwardAndBack()
+    {
+        List<Long> all = addRequests( 25 );
+
+        PendingQueuePage first = adminService.getPendingQueueAfter( 0 );
+        assertEquals( all.subList( 0, 10 ), ids( first ) );
+        assertFalse( first.isHasPrevious() );
+        assertTrue( first.isHasNext() );
+
+        PendingQueuePage second = adminService.getPendingQueueAfter( first.getLastId() );
+        assertEquals( all.subList( 10, 20 ), ids( second ) );
+        assertTrue( second.isHasPrevious() );
+        assertTrue( second.isHasNext() );
+
+        PendingQueuePage last = adminService.getPendingQueueAfter( second.getLastId() );
+        assertEquals( all.subList( 20, 25 ), ids( last ) );
+        assertTrue( last.isHasPrevious() );
+        assertFalse( last.isHasNext() );
+
+        PendingQueuePage back = adminService.getPendingQueueBefore( last.getFirstId() );
+        assertEquals( all.subList( 10, 20 ), ids( back ) );
+        assertTrue( back.isHasPrevious() );
+        assertTrue( back.isHasNext() );
+    }
+
+    public void testSkipsRequestsProcessedBetweenPages()
+    {
+        List<Long> all = addRequests( 15 );
+        PendingQueuePage first = adminService.getPendingQueueAfter( 0 );
+
+        adminService.approveGameRequest( all.get( 11 ), 7L );
+        adminService.rejectGameRequest( all.get( 12 ), 7L );
+
+        PendingQueuePage second = adminService.getPendingQueueAfter( first.getLastId() );
+        List<Long> expected = new ArrayList<>( all.subList( 10, 15 ) );
+        expected.remove( all.get( 12 ) );
+        expected.remove( all.get( 11 ) );
+        assertEquals( expected, ids( second ) );
+        assertFalse( second.isHasNext() );
+    }
+
+    public void testFallsBackWhenCursorSideIsDrained()
+    {
+        List<Long> all = addRequests( 12 );
+        PendingQueuePage first = adminService.getPendingQueueAfter( 0 );
+        adminService.approveGameRequests( all.subList( 10, 12 ), 7L );
+
+        PendingQueuePage next = adminService.getPendingQueueAfter( first.getLastId() );
+        assertEquals( "после курсора пусто — показываем последнюю страницу", all.subList( 0, 10 ), ids( next ) );
+        assertFalse( next.isHasNext() );
+
+        adminService.approveGameRequests( all.subList( 0, 5 ), 7L );
+        PendingQueuePage previous = adminService.getPendingQueueBefore( all.get( 5 ) );
+        assertEquals( "до курсора пусто — показываем первую страницу", all.subList( 5, 10 ), ids( previous ) );
+        assertFalse( previous.isHasPrevious() );
+    }
+}
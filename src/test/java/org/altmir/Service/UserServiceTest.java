@@ -0,0 +1,90 @@
+package org.altmir.Service;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.altmir.dao.User;
+import org.altmir.db.ConnectionPool;
+import org.altmir.db.DatabaseManager;
+import org.altmir.db.Leaderboard;
+import org.altmir.db.LiquibaseMigration;
+import org.altmir.db.UserCache;
+import org.altmir.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сбой чтения не выглядит как «игрока нет»: существующий игрок не пересоздаётся с нулевыми счётчиками.
+ */
+public class UserServiceTest
+    extends TestCase
+{
+    public UserServiceTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( UserServiceTest.class );
+    }
+
+    public void testReadTimeoutDoesNotRecreateUser() throws Exception
+    {
+        File dbFile = File.createTempFile( "kontrabot-users", ".db" );
+        dbFile.deleteOnExit();
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        LiquibaseMigration.runMigrations( url );
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try ( ConnectionPool pool = new ConnectionPool( url, 1, new MetricsRegistry() ) )
+        {
+            DatabaseManager db = new DatabaseManager( pool, new UserCache( 0 ), new Leaderboard(), null, null );
+            db.saveUser( new User( 1L, "user1", 3, 30, LocalDateTime.now(), true, false ) );
+            UserService service = new UserService( db );
+
+            // Единственное соединение на чтение занято, пока тест не отпустит его
+            CountDownLatch held = new CountDownLatch( 1 );
+            CountDownLatch release = new CountDownLatch( 1 );
+            executor.submit( () -> pool.read( "hold_reader", conn -> {
+                held.countDown();
+                try
+                {
+                    return release.await( 30, TimeUnit.SECONDS );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            } ) );
+            assertTrue( held.await( 5, TimeUnit.SECONDS ) );
+
+            try
+            {
+                service.getOrCreateUser( 1L, "user1" );
+                fail( "таймаут чтения не должен превращаться в отсутствующего игрока" );
+            }
+            catch ( IllegalStateException expected )
+            {
+            }
+            finally
+            {
+                release.countDown();
+            }
+
+            User user = db.getUser( 1L );
+            assertEquals( 3, user.getGamesPlayed() );
+            assertEquals( 30, user.getBonusPoints() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
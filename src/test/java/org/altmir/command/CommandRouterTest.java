@@ -0,0 +1,97 @@
+package org.altmir.command;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CommandRouterTest
+    extends TestCase
+{
+    private final List<String> calls = new ArrayList<>();
+
+    public CommandRouterTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( CommandRouterTest.class );
+    }
+
+    private CommandRouter router()
+    {
+        CommandRouter router = new CommandRouter()
+                .register( "/approve", "/approve [ID] ...", "Подтвердить", "/approve 1 2", this::record )
+                .register( "/approve_all", "/approve_all", "Подтвердить все", null, this::record )
+                .register( "🏠 Главное меню", this::record );
+        // Больше команд, чем начальная ёмкость таблицы
+        for ( int i = 0; i < 40; i++ )
+        {
+            router.register( "/cmd" + i, this::record );
+        }
+        return router;
+    }
+
+    private void record( Long chatId, Long userId, CommandArgs args )
+    {
+        StringBuilder call = new StringBuilder().append( chatId );
+        while ( args.hasNext() )
+        {
+            call.append( ' ' ).append( args.nextLong() );
+        }
+        calls.add( call.toString() );
+    }
+
+    public void testDispatchByWholeTextAndFirstWord()
+    {
+        CommandRouter router = router();
+
+        assertTrue( router.dispatch( "/approve_all", 1L, 1L ) );
+        assertTrue( router.dispatch( "/approve 12, 13  14", 2L, 1L ) );
+        assertTrue( router.dispatch( "/approve@KontraBot 15", 3L, 1L ) );
+        assertTrue( router.dispatch( "🏠 Главное меню", 4L, 1L ) );
+        assertTrue( router.dispatch( "/cmd39", 5L, 1L ) );
+        assertFalse( router.dispatch( "/approvex 1", 6L, 1L ) );
+        assertFalse( router.dispatch( "/unknown", 7L, 1L ) );
+        assertFalse( router.dispatch( "просто текст", 8L, 1L ) );
+
+        assertEquals( "[1, 2 12 13 14, 3 15, 4, 5]", calls.toString() );
+        assertEquals( "/approve", router.find( "/approve 1" ).getName() );
+        assertEquals( 43, router.getCommands().size() );
+        assertEquals( "/approve", router.getCommands().get( 0 ).getName() );
+    }
+
+    public void testArgs()
+    {
+        CommandArgs args = new CommandArgs( "/bonus_add 987654321 -25", 10 );
+        assertEquals( 2, args.count() );
+        assertEquals( 987654321L, args.nextLong() );
+        assertEquals( -25, args.nextInt() );
+        assertFalse( args.hasNext() );
+
+        try
+        {
+            new CommandArgs( "/stats abc", 6 ).nextLong();
+            fail( "ожидался NumberFormatException" );
+        }
+        catch ( NumberFormatException expected )
+        {
+        }
+    }
+
+    public void testDuplicateRegistrationFails()
+    {
+        try
+        {
+            router().register( "/approve", this::record );
+            fail( "повторная регистрация должна падать" );
+        }
+        catch ( IllegalArgumentException expected )
+        {
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.altmir.db;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.altmir.dao.User;
+import org.altmir.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Сумма delta в журнале по каждому игроку совпадает с users.bonus_points,
+ * в том числе после сворачивания старых записей.
+ */
+public class BonusLedgerTest
+    extends TestCase
+{
+    private static final String MISMATCH_SQL = "SELECT COUNT(*) FROM users u WHERE u.bonus_points <> "
+            + "(SELECT COALESCE(SUM(l.delta), 0) FROM bonus_ledger l WHERE l.chat_id = u.chat_id)";
+
+    public BonusLedgerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( BonusLedgerTest.class );
+    }
+
+    public void testLedgerMatchesBalances() throws Exception
+    {
+        File dbFile = File.createTempFile( "kontrabot-ledger", ".db" );
+        dbFile.deleteOnExit();
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        LiquibaseMigration.runMigrations( url );
+
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try ( ConnectionPool pool = new ConnectionPool( url, 2, new MetricsRegistry() );
+              BonusLedger ledger = new BonusLedger( pool, new UserCache( 100 ), new Leaderboard(), 64, 0, Long.MAX_VALUE / 2 );
+              WriteBatcher batcher = new WriteBatcher( pool, 64, 0 ) )
+        {
+            DatabaseManager db = new DatabaseManager( pool, new UserCache( 100 ), new Leaderboard(), ledger, batcher );
+            for ( long chatId = 1; chatId <= 20; chatId++ )
+            {
+                db.saveUser( new User( chatId, "user" + chatId, 0, 0, LocalDateTime.now(), true, false ) );
+            }
+
+            List<Future<?>> tasks = new ArrayList<>();
+            for ( int i = 0; i < 400; i++ )
+            {
+                long chatId = i % 20 + 1;
+                int points = i % 3 == 0 ? -2 : 5;
+                tasks.add( executor.submit( () -> db.addBonusPoints( chatId, points, 1_000L ).join() ) );
+            }
+            for ( Future<?> task : tasks )
+            {
+                task.get();
+            }
+            assertTrue( db.addGame( 3L ).join() );
+            assertFalse( db.addBonusPoints( 999L, 50, null ).join() );
+            db.addBonusPointsBatch( new long[]{ 1L, 2L, 999L }, new int[]{ 7, -1, 3 }, 3, 1_000L );
+
+            assertEquals( 0, count( url, MISMATCH_SQL ) );
+            assertEquals( 400 + 1 + 2, count( url, "SELECT COUNT(*) FROM bonus_ledger" ) );
+            assertEquals( 0, count( url, "SELECT COUNT(*) FROM bonus_ledger WHERE chat_id = 999" ) );
+            assertEquals( 400, ledger.getEntryCount() );
+
+            assertTrue( ledger.compact() > 0 );
+            assertEquals( 0, count( url, MISMATCH_SQL ) );
+            assertEquals( 20, count( url, "SELECT COUNT(*) FROM bonus_ledger" ) );
+            assertEquals( 0, ledger.compact() );
+            assertEquals( 0, count( url, MISMATCH_SQL ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int count( String url, String sql ) throws Exception
+    {
+        try ( Connection conn = DriverManager.getConnection( url );
+              Statement stmt = conn.createStatement();
+              ResultSet rs = stmt.executeQuery( sql ) )
+        {
+            rs.next();
+            return rs.getInt( 1 );
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.altmir.db;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.altmir.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Состояние диалогов переживает перезапуск и забывается по истечении ttl.
+ */
+public class ConversationStoreTest
+    extends TestCase
+{
+    private static final long TTL = 60_000;
+
+    private final AtomicLong now = new AtomicLong( 1_000_000 );
+    private String url;
+
+    public ConversationStoreTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ConversationStoreTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        File dbFile = File.createTempFile( "kontrabot-conversations", ".db" );
+        dbFile.deleteOnExit();
+        url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        LiquibaseMigration.runMigrations( url );
+    }
+
+    public void testStateSurvivesRestart() throws Exception
+    {
+        try ( ConnectionPool pool = new ConnectionPool( url, 1, new MetricsRegistry() ) )
+        {
+            ConversationStore store = new ConversationStore( pool, TTL, now::get );
+            store.put( 1L, "/admin_add" );
+            store.put( 2L, "/admin_remove" );
+            store.remove( 2L );
+        }
+
+        try ( ConnectionPool pool = new ConnectionPool( url, 1, new MetricsRegistry() ) )
+        {
+            ConversationStore store = new ConversationStore( pool, TTL, now::get );
+            assertEquals( "/admin_add", store.get( 1L ) );
+            assertNull( store.get( 2L ) );
+            assertEquals( 1, store.size() );
+        }
+    }
+
+    public void testAbandonedStateExpires() throws Exception
+    {
+        try ( ConnectionPool pool = new ConnectionPool( url, 1, new MetricsRegistry() ) )
+        {
+            ConversationStore store = new ConversationStore( pool, TTL, now::get );
+            store.put( 1L, "/admin_add" );
+            store.put( 2L, "/admin_add" );
+
+            now.addAndGet( TTL );
+            assertNull( store.get( 1L ) );
+            assertEquals( 1, store.size() );
+        }
+
+        try ( ConnectionPool pool = new ConnectionPool( url, 1, new MetricsRegistry() ) )
+        {
+            ConversationStore store = new ConversationStore( pool, TTL, now::get );
+            assertEquals( "истёкшие строки не должны загружаться после перезапуска", 0, store.size() );
+        }
+    }
+
+    public void testSweepDropsStateNobodyReads() throws Exception
+    {
+        try ( ConnectionPool pool = new ConnectionPool( url, 1, new MetricsRegistry() ) )
+        {
+            ConversationStore store = new ConversationStore( pool, TTL, now::get );
+            store.put( 1L, "/admin_add" );
+            now.addAndGet( TTL / 2 );
+            store.put( 2L, "/admin_remove" );
+
+            now.addAndGet( TTL / 2 );
+            assertEquals( 1, store.sweep() );
+            assertEquals( "брошенный диалог уходит без чтения, свежий остаётся", 1, store.size() );
+            assertEquals( "/admin_remove", store.get( 2L ) );
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.altmir.db;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.altmir.db.Leaderboard.Metric;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Сверяет рейтинг с наивным подсчётом по тем же счётчикам после случайной серии обновлений.
+ */
+public class LeaderboardTest
+    extends TestCase
+{
+    public LeaderboardTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( LeaderboardTest.class );
+    }
+
+    public void testMatchesNaiveRanking()
+    {
+        Leaderboard leaderboard = new Leaderboard();
+        Map<Long, Integer> games = new HashMap<>();
+        Random random = new Random( 42 );
+
+        for ( int i = 0; i < 5000; i++ )
+        {
+            long chatId = random.nextInt( 300 );
+            int value = random.nextInt( 50 );
+            if ( random.nextBoolean() && games.containsKey( chatId ) )
+            {
+                leaderboard.add( chatId, 1, 10 );
+                games.merge( chatId, 1, Integer::sum );
+            }
+            else
+            {
+                leaderboard.update( chatId, value, value * 10 );
+                games.put( chatId, value );
+            }
+        }
+
+        assertEquals( games.size(), leaderboard.size() );
+        for ( Map.Entry<Long, Integer> entry : games.entrySet() )
+        {
+            int above = 0;
+            for ( int other : games.values() )
+            {
+                if ( other > entry.getValue() )
+                {
+                    above++;
+                }
+            }
+            assertEquals( "место игрока " + entry.getKey(), above + 1, leaderboard.rank( Metric.GAMES, entry.getKey() ) );
+        }
+
+        List<Leaderboard.Entry> top = leaderboard.top( Metric.GAMES, 10 );
+        List<Integer> expected = new ArrayList<>( games.values() );
+        expected.sort( ( a, b ) -> b - a );
+        assertEquals( 10, top.size() );
+        for ( int i = 0; i < top.size(); i++ )
+        {
+            assertEquals( (int) expected.get( i ), top.get( i ).getValue() );
+            assertEquals( leaderboard.rank( Metric.GAMES, top.get( i ).getChatId() ), top.get( i ).getRank() );
+        }
+        assertEquals( 0, leaderboard.rank( Metric.BONUS, 1_000_000L ) );
+    }
+}
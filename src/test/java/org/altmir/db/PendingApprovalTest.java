@@ -0,0 +1,131 @@
+package org.altmir.db;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.altmir.dao.PendingGame;
+import org.altmir.dao.User;
+import org.altmir.db.Leaderboard.Metric;
+import org.altmir.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Запрос на игру засчитывается ровно один раз, сколько бы раз и каким способом его ни подтверждали.
+ */
+public class PendingApprovalTest
+    extends TestCase
+{
+    private ConnectionPool pool;
+    private WriteBatcher batcher;
+    private Leaderboard leaderboard;
+    private DatabaseManager db;
+    private String url;
+
+    public PendingApprovalTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( PendingApprovalTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        File dbFile = File.createTempFile( "kontrabot-approval", ".db" );
+        dbFile.deleteOnExit();
+        url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        LiquibaseMigration.runMigrations( url );
+
+        pool = new ConnectionPool( url, 2, new MetricsRegistry() );
+        batcher = new WriteBatcher( pool, 64, 0 );
+        leaderboard = new Leaderboard();
+        db = new DatabaseManager( pool, new UserCache( 100 ), leaderboard, null, batcher );
+        db.saveUser( new User( 1L, "user1", 0, 0, LocalDateTime.now(), true, false ) );
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        batcher.close();
+        pool.close();
+    }
+
+    public void testDuplicateIdsInBatchCreditOnce()
+    {
+        Long requestId = db.addPendingGame( 1L, "user1" );
+
+        assertEquals( 1, db.approvePendingGames( Arrays.asList( requestId, requestId ), 7L ).size() );
+        assertEquals( 0, db.approvePendingGames( Arrays.asList( requestId ), 7L ).size() );
+
+        User user = db.getUser( 1L );
+        assertEquals( 1, user.getGamesPlayed() );
+        assertEquals( DatabaseManager.GAME_BONUS_POINTS, user.getBonusPoints() );
+        assertEquals( 1, leaderboard.top( Metric.GAMES, 1 ).get( 0 ).getValue() );
+    }
+
+    public void testBatchSkipsRequestsOfMissingUsers() throws Exception
+    {
+        Long orphan = db.addPendingGame( 99L, "ghost" );
+        Long requestId = db.addPendingGame( 1L, "user1" );
+
+        List<PendingGame> approved = db.approvePendingGames( Arrays.asList( orphan, requestId ), 7L );
+        assertEquals( 1, approved.size() );
+        assertEquals( requestId, approved.get( 0 ).getId() );
+        assertEquals( "APPROVED", db.getPendingGame( orphan ).getStatus() );
+
+        assertEquals( 1, count( "SELECT COUNT(*) FROM bonus_ledger" ) );
+        assertEquals( 0, count( "SELECT COUNT(*) FROM bonus_ledger WHERE chat_id = 99" ) );
+        assertEquals( 1, leaderboard.top( Metric.GAMES, 10 ).size() );
+    }
+
+    public void testSecondApproveIsNoOp()
+    {
+        Long requestId = db.addPendingGame( 1L, "user1" );
+
+        assertEquals( Long.valueOf( 1L ), db.approvePendingGame( requestId, 7L ) );
+        assertNull( db.approvePendingGame( requestId, 8L ) );
+        assertNull( db.rejectPendingGame( requestId, 8L ) );
+
+        User user = db.getUser( 1L );
+        assertEquals( 1, user.getGamesPlayed() );
+        assertEquals( DatabaseManager.GAME_BONUS_POINTS, user.getBonusPoints() );
+        assertEquals( "APPROVED", db.getPendingGame( requestId ).getStatus() );
+        assertEquals( Long.valueOf( 7L ), db.getPendingGame( requestId ).getProcessedBy() );
+    }
+
+    public void testApproveAfterRejectIsNoOp()
+    {
+        Long requestId = db.addPendingGame( 1L, "user1" );
+
+        assertEquals( Long.valueOf( 1L ), db.rejectPendingGame( requestId, 7L ) );
+        assertNull( db.approvePendingGame( requestId, 8L ) );
+        assertEquals( 0, db.approvePendingGames( Arrays.asList( requestId ), 8L ).size() );
+
+        User user = db.getUser( 1L );
+        assertEquals( 0, user.getGamesPlayed() );
+        assertEquals( 0, user.getBonusPoints() );
+        assertEquals( "REJECTED", db.getPendingGame( requestId ).getStatus() );
+    }
+
+    private int count( String sql ) throws Exception
+    {
+        try ( Connection conn = DriverManager.getConnection( url );
+              Statement stmt = conn.createStatement();
+              ResultSet rs = stmt.executeQuery( sql ) )
+        {
+            rs.next();
+            return rs.getInt( 1 );
+        }
+    }
+}
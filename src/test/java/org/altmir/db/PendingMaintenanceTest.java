@@ -0,0 +1,110 @@
+package org.altmir.db;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.altmir.dao.PendingGame;
+import org.altmir.dao.User;
+import org.altmir.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Просроченные запросы истекают вместе с флагом ожидания у игрока, обработанные уходят в архив
+ * кусками, пока очередь не опустеет.
+ */
+public class PendingMaintenanceTest
+    extends TestCase
+{
+    private static final long NEVER = Long.MAX_VALUE / 2;
+
+    public PendingMaintenanceTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( PendingMaintenanceTest.class );
+    }
+
+    public void testExpiresStaleRequestsAndArchivesProcessed() throws Exception
+    {
+        File dbFile = File.createTempFile( "kontrabot-maintenance", ".db" );
+        dbFile.deleteOnExit();
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        LiquibaseMigration.runMigrations( url );
+
+        try ( ConnectionPool pool = new ConnectionPool( url, 2, new MetricsRegistry() );
+              WriteBatcher batcher = new WriteBatcher( pool, 64, 0 ) )
+        {
+            DatabaseManager db = new DatabaseManager( pool, new UserCache( 100 ), new Leaderboard(), null, batcher );
+            List<Long> requestIds = new ArrayList<>();
+            for ( long chatId = 1; chatId <= 5; chatId++ )
+            {
+                db.saveUser( new User( chatId, "user" + chatId, 0, 0, LocalDateTime.now(), true, false ) );
+                requestIds.add( db.addPendingGame( chatId, "user" + chatId ) );
+                db.setPendingRequestStatus( chatId, true ).join();
+            }
+            // Первые три запроса отправлены давно, четвёртый уже подтверждён
+            execute( url, "UPDATE pending_games SET requested_at = 0 WHERE id <= " + requestIds.get( 2 ) );
+            assertEquals( Long.valueOf( 4L ), db.approvePendingGame( requestIds.get( 3 ), 7L ) );
+
+            List<Long> notified = new ArrayList<>();
+            try ( PendingMaintenance maintenance = new PendingMaintenance( db, TimeUnit.HOURS.toMillis( 1 ), 2, NEVER ) )
+            {
+                maintenance.addListener( games -> {
+                    for ( PendingGame game : games )
+                    {
+                        notified.add( game.getUserChatId() );
+                    }
+                } );
+                maintenance.run();
+
+                assertEquals( 3, maintenance.getExpiredCount() );
+                assertEquals( 4, maintenance.getArchivedCount() );
+            }
+
+            assertEquals( List.of( 1L, 2L, 3L ), notified );
+            for ( long chatId = 1; chatId <= 3; chatId++ )
+            {
+                assertFalse( "флаг ожидания снят у игрока " + chatId, db.hasPendingRequest( chatId ) );
+            }
+            assertTrue( db.hasPendingRequest( 5L ) );
+            assertNull( "истёкший запрос нельзя подтвердить", db.approvePendingGame( requestIds.get( 0 ), 7L ) );
+
+            assertEquals( 1, count( url, "SELECT COUNT(*) FROM pending_games" ) );
+            assertEquals( 3, count( url, "SELECT COUNT(*) FROM pending_games_archive WHERE status = 'EXPIRED'" ) );
+            assertEquals( 1, count( url, "SELECT COUNT(*) FROM pending_games_archive WHERE status = 'APPROVED'" ) );
+            assertEquals( 0, count( url, "SELECT COUNT(*) FROM users WHERE chat_id <= 3 AND has_pending_request" ) );
+        }
+    }
+
+    private static void execute( String url, String sql ) throws Exception
+    {
+        try ( Connection conn = DriverManager.getConnection( url );
+              Statement stmt = conn.createStatement() )
+        {
+            stmt.executeUpdate( sql );
+        }
+    }
+
+    private static int count( String url, String sql ) throws Exception
+    {
+        try ( Connection conn = DriverManager.getConnection( url );
+              Statement stmt = conn.createStatement();
+              ResultSet rs = stmt.executeQuery( sql ) )
+        {
+            rs.next();
+            return rs.getInt( 1 );
+        }
+    }
+}
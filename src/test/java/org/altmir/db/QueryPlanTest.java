@@ -0,0 +1,137 @@
+package org.altmir.db;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Прогоняет EXPLAIN QUERY PLAN для каждого SQL-запроса из {@link DatabaseManager}
+ * на мигрированной схеме и падает, если горячий запрос просматривает таблицу целиком.
+ */
+public class QueryPlanTest
+    extends TestCase
+{
+    /**
+     * Запросы, которым полный просмотр допустим: таблица admins крошечная и читается
+     * только при старте и в админ-панели, рейтинг читает users целиком один раз при старте.
+     */
+    private static final Set<String> COLD_QUERIES = new HashSet<>(Arrays.asList(
+            "SELECT_ADMINS_SQL",
+            "SELECT_ADMIN_IDS_SQL",
+            "SELECT_ADMIN_LIST_SQL",
+            "SELECT_LEADERBOARD_SQL"
+    ));
+
+    public QueryPlanTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( QueryPlanTest.class );
+    }
+
+    public void testHotQueriesDoNotScanTables() throws Exception
+    {
+        File dbFile = File.createTempFile( "kontrabot-plan", ".db" );
+        dbFile.deleteOnExit();
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        LiquibaseMigration.runMigrations( url );
+
+        List<String> failures = new ArrayList<>();
+        int checked = 0;
+        try ( Connection conn = DriverManager.getConnection( url ) )
+        {
+            for ( Field field : DatabaseManager.class.getDeclaredFields() )
+            {
+                if ( !isSqlConstant( field ) || COLD_QUERIES.contains( field.getName() ) )
+                {
+                    continue;
+                }
+                field.setAccessible( true );
+                String sql = (String) field.get( null );
+                for ( String detail : explain( conn, sql ) )
+                {
+                    if ( isTableScan( detail ) )
+                    {
+                        failures.add( field.getName() + ": " + detail );
+                    }
+                }
+                checked++;
+            }
+        }
+
+        assertTrue( "в DatabaseManager не найдено SQL-констант", checked > 0 );
+        assertTrue( "запросы просматривают таблицу целиком: " + failures, failures.isEmpty() );
+    }
+
+    /**
+     * Листание очереди идёт по частичному индексу без сортировки: цена страницы не зависит
+     * ни от её номера, ни от числа уже обработанных запросов.
+     */
+    public void testPendingQueuePagesSeekPartialIndex() throws Exception
+    {
+        File dbFile = File.createTempFile( "kontrabot-plan", ".db" );
+        dbFile.deleteOnExit();
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        LiquibaseMigration.runMigrations( url );
+
+        try ( Connection conn = DriverManager.getConnection( url ) )
+        {
+            for ( String name : new String[] { "SELECT_PENDING_PAGE_AFTER_SQL", "SELECT_PENDING_PAGE_BEFORE_SQL" } )
+            {
+                Field field = DatabaseManager.class.getDeclaredField( name );
+                field.setAccessible( true );
+                List<String> plan = explain( conn, (String) field.get( null ) );
+
+                assertEquals( name + ": " + plan, 1, plan.size() );
+                assertTrue( name + ": " + plan, plan.get( 0 ).startsWith( "SEARCH pending_games USING INDEX idx_pending_games_pending" ) );
+            }
+        }
+    }
+
+    private static boolean isSqlConstant( Field field )
+    {
+        return Modifier.isStatic( field.getModifiers() )
+                && field.getType() == String.class
+                && field.getName().endsWith( "_SQL" );
+    }
+
+    /**
+     * «SCAN t» — полный просмотр таблицы; «SCAN t USING ... INDEX» — просмотр индекса
+     * (для частичного индекса это только подходящие строки), его считаем допустимым.
+     */
+    private static boolean isTableScan( String detail )
+    {
+        return detail.startsWith( "SCAN " ) && !detail.contains( " USING " );
+    }
+
+    private static List<String> explain( Connection conn, String sql ) throws SQLException
+    {
+        List<String> details = new ArrayList<>();
+        try ( Statement stmt = conn.createStatement();
+              ResultSet rs = stmt.executeQuery( "EXPLAIN QUERY PLAN " + sql ) )
+        {
+            while ( rs.next() )
+            {
+                details.add( rs.getString( "detail" ) );
+            }
+        }
+        return details;
+    }
+}
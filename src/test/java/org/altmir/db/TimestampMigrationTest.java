@@ -0,0 +1,92 @@
+package org.altmir.db;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import liquibase.Scope;
+import liquibase.command.CommandScope;
+import liquibase.command.core.UpdateCountCommandStep;
+import liquibase.command.core.helpers.DbUrlConnectionArgumentsCommandStep;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.altmir.dao.Admin;
+import org.altmir.dao.PendingGame;
+import org.altmir.dao.User;
+import org.altmir.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+
+/**
+ * Даты, записанные текстом LocalDateTime.toString() до миграции 007, читаются после неё теми же значениями.
+ */
+public class TimestampMigrationTest
+    extends TestCase
+{
+    private static final LocalDateTime REGISTERED = LocalDateTime.of( 2024, 3, 31, 1, 30, 15, 250_000_000 );
+    private static final LocalDateTime REQUESTED = LocalDateTime.of( 2024, 10, 27, 2, 45 );
+
+    public TimestampMigrationTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( TimestampMigrationTest.class );
+    }
+
+    public void testTextDatesBecomeEpochMillis() throws Exception
+    {
+        File dbFile = File.createTempFile( "kontrabot-timestamps", ".db" );
+        dbFile.deleteOnExit();
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+
+        try ( Connection connection = DriverManager.getConnection( url ) )
+        {
+            Database database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation( new JdbcConnection( connection ) );
+            Scope.child( Scope.Attr.resourceAccessor.name(), new ClassLoaderResourceAccessor(), () ->
+                    new CommandScope( UpdateCountCommandStep.COMMAND_NAME )
+                            .addArgumentValue( DbUrlConnectionArgumentsCommandStep.DATABASE_ARG, database )
+                            .addArgumentValue( UpdateCountCommandStep.CHANGELOG_FILE_ARG, "db/changelog/db.changelog-master.yaml" )
+                            .addArgumentValue( UpdateCountCommandStep.COUNT_ARG, 6 )
+                            .execute() );
+        }
+
+        try ( Connection connection = DriverManager.getConnection( url );
+              Statement stmt = connection.createStatement() )
+        {
+            stmt.executeUpdate( "INSERT INTO users (chat_id, username, games_played, bonus_points, registration_date, terms_accepted, has_pending_request) "
+                    + "VALUES (1, 'user1', 3, 30, '" + REGISTERED + "', 1, 0)" );
+            stmt.executeUpdate( "INSERT INTO admins (user_id, username, added_by, added_date) VALUES (7, 'admin', 7, '" + REGISTERED + "')" );
+            stmt.executeUpdate( "INSERT INTO pending_games (user_chat_id, username, request_date, status) "
+                    + "VALUES (1, 'user1', '" + REQUESTED + "', 'PENDING')" );
+        }
+
+        LiquibaseMigration.runMigrations( url );
+
+        try ( ConnectionPool pool = new ConnectionPool( url, 1, new MetricsRegistry() ) )
+        {
+            DatabaseManager db = new DatabaseManager( pool, new UserCache( 0 ), new Leaderboard(), null, null );
+            User user = db.getUser( 1L );
+            assertEquals( REGISTERED, user.getRegistrationDate() );
+            assertEquals( 30, user.getBonusPoints() );
+
+            Admin admin = db.getAllAdmins().get( 0 );
+            assertEquals( REGISTERED, admin.getAddedDate() );
+
+            PendingGame game = db.getPendingGame( 1L );
+            assertEquals( REQUESTED, game.getRequestDate() );
+            assertNull( game.getProcessedDate() );
+
+            assertEquals( Long.valueOf( 1L ), db.rejectPendingGame( 1L, 7L ) );
+            assertNotNull( db.getPendingGame( 1L ).getProcessedDate() );
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.altmir.db;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.altmir.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Записи из разных потоков фиксируются пачками, а ошибка одной записи не откатывает соседей по пачке.
+ */
+public class WriteBatcherTest
+    extends TestCase
+{
+    public WriteBatcherTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( WriteBatcherTest.class );
+    }
+
+    public void testBatchesWritesAndIsolatesFailures() throws Exception
+    {
+        File dbFile = File.createTempFile( "kontrabot-batch", ".db" );
+        dbFile.deleteOnExit();
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        LiquibaseMigration.runMigrations( url );
+
+        MetricsRegistry registry = new MetricsRegistry();
+        try ( ConnectionPool pool = new ConnectionPool( url, 1, registry ) )
+        {
+            pool.write( "seed_user", conn -> conn.getConnection().createStatement().executeUpdate(
+                    "INSERT INTO users (chat_id, username, games_played, bonus_points, registered_at, terms_accepted, has_pending_request) "
+                            + "VALUES (1, 'user1', 0, 0, 0, 1, 0)" ) );
+
+            AtomicInteger committed = new AtomicInteger();
+            List<CompletableFuture<Integer>> writes = new ArrayList<>();
+            try ( WriteBatcher batcher = new WriteBatcher( pool, 64, 20 ) )
+            {
+                for ( int i = 0; i < 200; i++ )
+                {
+                    writes.add( batcher.submit( "add_game", conn -> {
+                        PreparedStatement pstmt = conn.prepare( "UPDATE users SET games_played = games_played + 1 WHERE chat_id = 1" );
+                        return pstmt.executeUpdate();
+                    }, updated -> committed.incrementAndGet() ) );
+                }
+                CompletableFuture<Integer> broken = batcher.submit( "broken",
+                        conn -> conn.prepare( "UPDATE no_such_table SET x = 1" ).executeUpdate(),
+                        updated -> committed.incrementAndGet() );
+
+                for ( CompletableFuture<Integer> write : writes )
+                {
+                    assertEquals( Integer.valueOf( 1 ), write.join() );
+                }
+                try
+                {
+                    broken.join();
+                    fail( "запись с ошибкой должна завершиться исключением" );
+                }
+                catch ( CompletionException expected )
+                {
+                    // ожидаемо
+                }
+                assertEquals( 200, committed.get() );
+                assertTrue( "записи должны фиксироваться пачками", batcher.getBatchCount() < 200 );
+            }
+            assertEquals( 200, registry.timer( "kontrabot_sql_seconds", "statement", "add_game" ).getHistogram().getCount() );
+            assertEquals( 1, registry.counter( "kontrabot_sql_errors_total", "statement", "broken" ).get() );
+
+            int games = pool.read( "select_games", conn -> {
+                try ( ResultSet rs = conn.prepare( "SELECT games_played FROM users WHERE chat_id = 1" ).executeQuery() )
+                {
+                    rs.next();
+                    return rs.getInt( 1 );
+                }
+            } );
+            assertEquals( 200, games );
+        }
+    }
+
+    public void testSubmitAfterCloseFailsInsteadOfHanging() throws Exception
+    {
+        File dbFile = File.createTempFile( "kontrabot-batch", ".db" );
+        dbFile.deleteOnExit();
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        LiquibaseMigration.runMigrations( url );
+
+        try ( ConnectionPool pool = new ConnectionPool( url, 1, new MetricsRegistry() ) )
+        {
+            WriteBatcher batcher = new WriteBatcher( pool, 64, 0 );
+            batcher.close();
+
+            CompletableFuture<Integer> late = batcher.submit( "late", conn -> 1, updated -> { } );
+            assertTrue( "после close() запись должна сразу завершиться ошибкой", late.isCompletedExceptionally() );
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.altmir.db.memory;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.altmir.dao.PendingGame;
+import org.altmir.dao.User;
+import org.altmir.db.Leaderboard;
+import org.altmir.db.Leaderboard.Metric;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Хранилище в памяти восстанавливается из снимка и журнала, а недописанный хвост журнала отбрасывается.
+ */
+public class MemoryStorageTest
+    extends TestCase
+{
+    private static final long NEVER = Long.MAX_VALUE / 2;
+
+    private Path dir;
+
+    public MemoryStorageTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( MemoryStorageTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = Files.createTempDirectory( "kontrabot-memory" );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        for ( File file : dir.toFile().listFiles() )
+        {
+            file.delete();
+        }
+        dir.toFile().delete();
+    }
+
+    private MemoryStorage open( Leaderboard leaderboard ) throws Exception
+    {
+        return new MemoryStorage( dir, leaderboard, NEVER, NEVER );
+    }
+
+    private static User user( long chatId )
+    {
+        return new User( chatId, "user" + chatId, 0, 0, LocalDateTime.now(), true, false );
+    }
+
+    public void testRecoversFromJournalAndDropsTornTail() throws Exception
+    {
+        // Без close(): как после падения процесса, снимка нет, всё восстанавливается из журнала
+        MemoryStorage before = open( new Leaderboard() );
+        before.saveUser( user( 1 ) );
+        before.saveUser( user( 2 ) );
+        before.addGame( 2L );
+        before.addBonusPoints( 1L, 5, null );
+        before.addAdmin( 7L, "admin", 7L );
+        before.addAdmin( 8L, "second", 7L );
+        before.removeAdmin( 8L );
+        Long requestId = before.addPendingGame( 1L, "user1" );
+        before.setPendingRequestStatus( 1L, true );
+        assertEquals( Long.valueOf( 1L ), before.approvePendingGame( requestId, 7L ) );
+        assertNull( "повторное подтверждение не должно начислять игру", before.approvePendingGame( requestId, 7L ) );
+
+        List<Path> segments = WriteAheadLog.segments( dir );
+        Files.write( segments.get( segments.size() - 1 ), new byte[]{ 0, 0, 0, 42, 1, 2 }, StandardOpenOption.APPEND );
+
+        Leaderboard leaderboard = new Leaderboard();
+        MemoryStorage after = open( leaderboard );
+        User first = after.getUser( 1L );
+        assertEquals( 1, first.getGamesPlayed() );
+        assertEquals( 15, first.getBonusPoints() );
+        assertFalse( first.isHasPendingRequest() );
+        assertEquals( 10, after.getUser( 2L ).getBonusPoints() );
+        assertEquals( "APPROVED", after.getPendingGame( requestId ).getStatus() );
+        assertTrue( after.isAdmin( 7L ) );
+        assertFalse( after.isAdmin( 8L ) );
+        assertEquals( 1, leaderboard.rank( Metric.BONUS, 1L ) );
+
+        Long next = after.addPendingGame( 2L, "user2" );
+        assertTrue( "id запросов не должны повторяться после восстановления", next > requestId );
+        after.close();
+    }
+
+    public void testSnapshotReplacesCoveredSegments() throws Exception
+    {
+        MemoryStorage before = open( new Leaderboard() );
+        for ( long chatId = 1; chatId <= 100; chatId++ )
+        {
+            before.saveUser( user( chatId ) );
+        }
+        before.snapshot();
+        CompletableFuture<Boolean> game = before.addGame( 50L );
+        Long requestId = before.addPendingGame( 60L, "user60" );
+        assertFalse( "без fsync журнала изменение ещё не сохранено", game.isDone() );
+        before.close();
+        assertTrue( game.join() );
+        assertEquals( "после снимка при закрытии остаётся только новый пустой сегмент",
+                1, WriteAheadLog.segments( dir ).size() );
+
+        MemoryStorage after = open( new Leaderboard() );
+        assertEquals( 1, after.getUser( 50L ).getGamesPlayed() );
+        assertEquals( 0, after.getUser( 100L ).getGamesPlayed() );
+        assertEquals( 1, after.approvePendingGames( null, 7L ).size() );
+        assertEquals( "APPROVED", after.getPendingGame( requestId ).getStatus() );
+        after.close();
+    }
+
+    public void testExpiredAndArchivedRequestsStayGoneAfterRecovery() throws Exception
+    {
+        MemoryStorage before = open( new Leaderboard() );
+        before.saveUser( user( 1 ) );
+        before.saveUser( user( 2 ) );
+        Long stale = before.addPendingGame( 1L, "user1" );
+        before.setPendingRequestStatus( 1L, true );
+        Long fresh = before.addPendingGame( 2L, "user2" );
+        before.setPendingRequestStatus( 2L, true );
+
+        long cutoff = System.currentTimeMillis() + 60_000;
+        List<PendingGame> expired = before.expirePendingGames( cutoff, 1 );
+        assertEquals( 1, expired.size() );
+        assertEquals( stale, expired.get( 0 ).getId() );
+        assertFalse( before.getUser( 1L ).isHasPendingRequest() );
+        assertTrue( before.getUser( 2L ).isHasPendingRequest() );
+
+        assertEquals( 1, before.archiveProcessedGames( 10 ) );
+        assertNull( before.getPendingGame( stale ) );
+        assertEquals( 0, before.archiveProcessedGames( 10 ) );
+        assertTrue( Files.size( dir.resolve( "pending-archive.bin" ) ) > 0 );
+
+        // Без close(): удаление из памяти восстанавливается из журнала
+        MemoryStorage after = open( new Leaderboard() );
+        assertNull( after.getPendingGame( stale ) );
+        assertEquals( "PENDING", after.getPendingGame( fresh ).getStatus() );
+        assertFalse( after.getUser( 1L ).isHasPendingRequest() );
+        assertTrue( after.addPendingGame( 1L, "user1" ) > fresh );
+        after.close();
+    }
+}
@@ -0,0 +1,125 @@
+package org.altmir.dispatch;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обновления одного чата обрабатываются по порядку, разные чаты — параллельно.
+ */
+public class UpdateDispatcherTest
+    extends TestCase
+{
+    public UpdateDispatcherTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( UpdateDispatcherTest.class );
+    }
+
+    private static Update update( int updateId, long chatId )
+    {
+        Chat chat = new Chat();
+        chat.setId( chatId );
+        chat.setType( "private" );
+        Message message = new Message();
+        message.setChat( chat );
+        Update update = new Update();
+        update.setUpdateId( updateId );
+        update.setMessage( message );
+        return update;
+    }
+
+    public void testSameChatKeepsOrder() throws Exception
+    {
+        int chats = 8;
+        int perChat = 200;
+        Map<Long, List<Integer>> seen = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch( chats * perChat );
+
+        try ( UpdateDispatcher dispatcher = new UpdateDispatcher( 4, 4, update -> {
+            seen.computeIfAbsent( update.getMessage().getChatId(), id -> Collections.synchronizedList( new ArrayList<>() ) )
+                    .add( update.getUpdateId() );
+            done.countDown();
+        } ) )
+        {
+            for ( int i = 0; i < perChat; i++ )
+            {
+                for ( long chatId = 1; chatId <= chats; chatId++ )
+                {
+                    dispatcher.dispatch( update( i, chatId ) );
+                }
+            }
+            assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        }
+
+        assertEquals( chats, seen.size() );
+        for ( List<Integer> ids : seen.values() )
+        {
+            assertEquals( perChat, ids.size() );
+            for ( int i = 0; i < perChat; i++ )
+            {
+                assertEquals( Integer.valueOf( i ), ids.get( i ) );
+            }
+        }
+    }
+
+    /**
+     * Первое обновление чата 1 ждёт, пока обработается какой-нибудь другой чат: если бы всё шло
+     * одним потоком, ожидание не закончилось бы. Второе обновление чата 1 в это время стоит в очереди.
+     */
+    public void testOtherChatsRunWhileOneIsBusy() throws Exception
+    {
+        CountDownLatch otherChatHandled = new CountDownLatch( 1 );
+        List<String> events = Collections.synchronizedList( new ArrayList<>() );
+        CountDownLatch done = new CountDownLatch( 2 );
+
+        try ( UpdateDispatcher dispatcher = new UpdateDispatcher( 16, 4, update -> {
+            long chatId = update.getMessage().getChatId();
+            if ( chatId != 1L )
+            {
+                otherChatHandled.countDown();
+                return;
+            }
+            events.add( "start " + update.getUpdateId() );
+            if ( update.getUpdateId() == 1 )
+            {
+                try
+                {
+                    events.add( otherChatHandled.await( 5, TimeUnit.SECONDS ) ? "other chat ran" : "timeout" );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add( "end " + update.getUpdateId() );
+            done.countDown();
+        } ) )
+        {
+            dispatcher.dispatch( update( 1, 1L ) );
+            dispatcher.dispatch( update( 2, 1L ) );
+            for ( long chatId = 2; chatId <= 10; chatId++ )
+            {
+                dispatcher.dispatch( update( 100, chatId ) );
+            }
+            assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        }
+
+        assertEquals( List.of( "start 1", "other chat ran", "end 1", "start 2", "end 2" ), events );
+    }
+}
@@ -0,0 +1,70 @@
+package org.altmir.metrics;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверяет выгрузку {@link MetricsRegistry} в текстовом формате Prometheus.
+ */
+public class MetricsRegistryTest
+    extends TestCase
+{
+    public MetricsRegistryTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( MetricsRegistryTest.class );
+    }
+
+    public void testTimerIsExportedAsCumulativeHistogramInSeconds()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        Timer timer = registry.timer( "kontrabot_update_seconds", "route", "/start" );
+        timer.record( TimeUnit.MICROSECONDS.toNanos( 3 ) );
+        timer.record( TimeUnit.MILLISECONDS.toNanos( 5 ) );
+        assertSame( timer, registry.timer( "kontrabot_update_seconds", "route", "/start" ) );
+
+        String text = registry.scrape();
+        assertTrue( text.contains( "# TYPE kontrabot_update_seconds histogram\n" ) );
+        assertTrue( text.contains( "kontrabot_update_seconds_bucket{route=\"/start\",le=\"2.0E-6\"} 0\n" ) );
+        assertTrue( text.contains( "kontrabot_update_seconds_bucket{route=\"/start\",le=\"4.0E-6\"} 1\n" ) );
+        assertTrue( text.contains( "kontrabot_update_seconds_bucket{route=\"/start\",le=\"+Inf\"} 2\n" ) );
+        assertTrue( text.contains( "kontrabot_update_seconds_count{route=\"/start\"} 2\n" ) );
+        assertTrue( text.contains( "kontrabot_update_seconds_sum{route=\"/start\"} 0.005003\n" ) );
+    }
+
+    public void testCountersGaugesAndLabelEscaping()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter( "kontrabot_update_errors_total", "route", "say \"hi\"" ).increment( 3 );
+        registry.functionCounter( "kontrabot_db_wait_seconds_total", () -> 1.5, "role", "writer" );
+        registry.gauge( "kontrabot_dispatch_queue_depth", () -> 7 );
+
+        String text = registry.scrape();
+        assertTrue( text.contains( "# TYPE kontrabot_update_errors_total counter\n" ) );
+        assertTrue( text.contains( "kontrabot_update_errors_total{route=\"say \\\"hi\\\"\"} 3\n" ) );
+        assertTrue( text.contains( "kontrabot_db_wait_seconds_total{role=\"writer\"} 1.5\n" ) );
+        assertTrue( text.contains( "# TYPE kontrabot_dispatch_queue_depth gauge\nkontrabot_dispatch_queue_depth 7\n" ) );
+    }
+
+    public void testNameCannotChangeType()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter( "kontrabot_sql_seconds" );
+        try
+        {
+            registry.timer( "kontrabot_sql_seconds" );
+            fail( "ожидалось IllegalArgumentException" );
+        }
+        catch ( IllegalArgumentException expected )
+        {
+            // ок
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.altmir.telegram;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.altmir.metrics.MetricsRegistry;
+import org.altmir.telegram.OutboundQueue.Priority;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь отдаёт вызовы по приоритету и склеивает подряд идущие тексты в один чат,
+ * не теряя параметров доставки.
+ */
+public class OutboundQueueTest
+    extends TestCase
+{
+    private static final long BLOCKER_CHAT = 1L;
+
+    private RecordingDispatcher dispatcher;
+    private OutboundQueue queue;
+
+    public OutboundQueueTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( OutboundQueueTest.class );
+    }
+
+    @Override
+    protected void setUp()
+    {
+        dispatcher = new RecordingDispatcher();
+        queue = new OutboundQueue( dispatcher, new RateLimiter( 1000, 1000, 1000 ) );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        queue.close();
+        dispatcher.close();
+    }
+
+    /**
+     * Первое сообщение задерживает поток очереди в dispatcher, пока тест ставит в очередь остальные.
+     */
+    private void holdDrainThread() throws InterruptedException
+    {
+        queue.send( new SendMessage( String.valueOf( BLOCKER_CHAT ), "blocker" ), Priority.NOTIFICATION );
+        assertTrue( dispatcher.entered.await( 5, TimeUnit.SECONDS ) );
+    }
+
+    private static SendMessage message( long chatId, String text )
+    {
+        return new SendMessage( String.valueOf( chatId ), text );
+    }
+
+    public void testHigherPriorityGoesFirst() throws Exception
+    {
+        holdDrainThread();
+        queue.send( message( 10, "notification" ), Priority.NOTIFICATION );
+        queue.send( message( 20, "reply" ), Priority.REPLY );
+        CompletableFuture<DeliveryReport> last = queue.send( message( 30, "callback" ), Priority.CALLBACK );
+        dispatcher.release.countDown();
+        last.get( 5, TimeUnit.SECONDS );
+        queue.send( message( 40, "tail" ), Priority.NOTIFICATION ).get( 5, TimeUnit.SECONDS );
+
+        assertEquals( List.of( "blocker", "callback", "reply", "notification", "tail" ), dispatcher.texts() );
+    }
+
+    public void testCoalescesOnlyMatchingMessages() throws Exception
+    {
+        holdDrainThread();
+        CompletableFuture<DeliveryReport> first = queue.send( message( 5, "a" ), Priority.REPLY );
+        CompletableFuture<DeliveryReport> second = queue.send( message( 5, "b" ), Priority.REPLY );
+
+        SendMessage silent = message( 5, "c" );
+        silent.setDisableNotification( true );
+        silent.setDisableWebPagePreview( true );
+        queue.send( silent, Priority.REPLY );
+        SendMessage silentToo = message( 5, "d" );
+        silentToo.setDisableNotification( true );
+        silentToo.setDisableWebPagePreview( true );
+        queue.send( silentToo, Priority.REPLY );
+
+        SendMessage reply = message( 5, "e" );
+        reply.setReplyToMessageId( 77 );
+        CompletableFuture<DeliveryReport> last = queue.send( reply, Priority.REPLY );
+
+        dispatcher.release.countDown();
+        last.get( 5, TimeUnit.SECONDS );
+        assertTrue( first.isDone() && second.isDone() );
+
+        assertEquals( List.of( "blocker", "a\n\nb", "c\n\nd", "e" ), dispatcher.texts() );
+        SendMessage mergedSilent = dispatcher.messages.get( 2 );
+        assertEquals( Boolean.TRUE, mergedSilent.getDisableNotification() );
+        assertEquals( Boolean.TRUE, mergedSilent.getDisableWebPagePreview() );
+        assertEquals( Integer.valueOf( 77 ), dispatcher.messages.get( 3 ).getReplyToMessageId() );
+        assertEquals( 2, queue.getCoalescedCount() );
+    }
+
+    /**
+     * Записывает доставленные сообщения и сразу отвечает успехом; первую доставку держит до release.
+     */
+    private static final class RecordingDispatcher extends NotificationDispatcher
+    {
+        private final List<SendMessage> messages = new CopyOnWriteArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch( 1 );
+        private final CountDownLatch release = new CountDownLatch( 1 );
+
+        private RecordingDispatcher()
+        {
+            super( null, new RateLimiter( 1000, 1000, 1000 ), new MetricsRegistry() );
+        }
+
+        @Override
+        public CompletableFuture<DeliveryReport> deliver( BotApiMethod<?> method, Long chatId, long delayNanos )
+        {
+            messages.add( (SendMessage) method );
+            if ( chatId == BLOCKER_CHAT )
+            {
+                entered.countDown();
+                try
+                {
+                    release.await( 5, TimeUnit.SECONDS );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return CompletableFuture.completedFuture( new DeliveryReport( chatId, true, 1, 0, null ) );
+        }
+
+        private List<String> texts()
+        {
+            List<String> texts = new ArrayList<>();
+            for ( SendMessage message : messages )
+            {
+                texts.add( message.getText() );
+            }
+            return texts;
+        }
+    }
+}
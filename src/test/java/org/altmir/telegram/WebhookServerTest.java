@@ -0,0 +1,142 @@
+package org.altmir.telegram;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шлёт в {@link WebhookServer} запросы так, как их шлёт Telegram, и проверяет,
+ * что апдейт доходит до обработчика, а чужие и битые запросы отклоняются.
+ */
+public class WebhookServerTest
+    extends TestCase
+{
+    private static final String PATH = "/telegram/webhook";
+    private static final String SECRET = "test-secret";
+    private static final String UPDATE_JSON = "{\"update_id\":100500,\"message\":{\"message_id\":7,"
+            + "\"from\":{\"id\":42,\"is_bot\":false,\"first_name\":\"Иван\",\"username\":\"ivan\"},"
+            + "\"chat\":{\"id\":42,\"type\":\"private\"},\"date\":1700000000,\"text\":\"⭐ Моя статистика\"}}";
+
+    private final BlockingQueue<Update> received = new LinkedBlockingQueue<>();
+    private WebhookServer server;
+    private int port;
+
+    public WebhookServerTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( WebhookServerTest.class );
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        try ( ServerSocket socket = new ServerSocket( 0 ) )
+        {
+            port = socket.getLocalPort();
+        }
+        server = new WebhookServer( "127.0.0.1", port, PATH, SECRET, received::add );
+        server.start();
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        server.close();
+    }
+
+    public void testUpdateReachesHandler() throws Exception
+    {
+        assertEquals( 200, post( UPDATE_JSON, SECRET ) );
+
+        Update update = received.poll( 5, TimeUnit.SECONDS );
+        assertNotNull( update );
+        assertEquals( Integer.valueOf( 100500 ), update.getUpdateId() );
+        assertEquals( Long.valueOf( 42 ), update.getMessage().getChatId() );
+        assertEquals( "⭐ Моя статистика", update.getMessage().getText() );
+        assertEquals( 1, server.getAcceptedCount() );
+    }
+
+    public void testWrongSecretIsRejected() throws Exception
+    {
+        assertEquals( 403, post( UPDATE_JSON, "wrong" ) );
+        assertEquals( 403, post( UPDATE_JSON, null ) );
+        assertTrue( received.isEmpty() );
+        assertEquals( 2, server.getRejectedCount() );
+    }
+
+    public void testServerRequiresSecret()
+    {
+        try
+        {
+            new WebhookServer( "127.0.0.1", port, PATH, "", received::add );
+            fail( "без секрета вебхук принимал бы апдейты от кого угодно" );
+        }
+        catch ( IllegalArgumentException expected )
+        {
+        }
+    }
+
+    public void testMalformedBodyIsRejected() throws Exception
+    {
+        assertEquals( 400, post( "{\"update_id\":", SECRET ) );
+        assertTrue( received.isEmpty() );
+    }
+
+    public void testOversizedContentLengthIsRejectedUpFront() throws Exception
+    {
+        try ( Socket socket = new Socket( "127.0.0.1", port ) )
+        {
+            socket.setSoTimeout( 5000 );
+            String head = "POST " + PATH + " HTTP/1.1\r\n"
+                    + "Host: 127.0.0.1\r\n"
+                    + WebhookServer.SECRET_HEADER + ": " + SECRET + "\r\n"
+                    + "Content-Type: application/json\r\n"
+                    + "Content-Length: 2000000000\r\n\r\n{";
+            socket.getOutputStream().write( head.getBytes( StandardCharsets.UTF_8 ) );
+            socket.getOutputStream().flush();
+
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader( socket.getInputStream(), StandardCharsets.UTF_8 ) );
+            assertTrue( reader.readLine().startsWith( "HTTP/1.1 413" ) );
+        }
+        assertTrue( received.isEmpty() );
+        assertEquals( 1, server.getRejectedCount() );
+    }
+
+    private int post( String body, String secret ) throws IOException
+    {
+        HttpURLConnection conn = (HttpURLConnection) new URL( "http://127.0.0.1:" + port + PATH ).openConnection();
+        conn.setRequestMethod( "POST" );
+        conn.setDoOutput( true );
+        conn.setRequestProperty( "Content-Type", "application/json" );
+        if ( secret != null )
+        {
+            conn.setRequestProperty( WebhookServer.SECRET_HEADER, secret );
+        }
+        try ( OutputStream out = conn.getOutputStream() )
+        {
+            out.write( body.getBytes( StandardCharsets.UTF_8 ) );
+        }
+        int status = conn.getResponseCode();
+        conn.disconnect();
+        return status;
+    }
+}